@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+# Сравнение режимов по сводкам k6 (--summary-export): поток на запрос и виртуальные потоки.
+#
+#   load-test/compare.sh [load-test/result-platform.json] [load-test/result-virtual.json]
+#
+# Печатает таблицу Markdown: запросов в секунду, p50/p95/p99 длительности и долю ошибок.
+set -euo pipefail
+
+PLATFORM=${1:-load-test/result-platform.json}
+VIRTUAL=${2:-load-test/result-virtual.json}
+
+row() {
+    jq -r --arg mode "$1" '
+        .metrics as $m
+        | "| \($mode) | \($m.http_reqs.rate * 10 | round / 10) | \($m.http_req_duration["p(50)"] | round)"
+          + " | \($m.http_req_duration["p(95)"] | round) | \($m.http_req_duration["p(99)"] | round)"
+          + " | \($m.http_req_failed.value * 10000 | round / 100)% |"' "$2"
+}
+
+echo "| Режим | http_reqs/с | p50, мс | p95, мс | p99, мс | http_req_failed |"
+echo "|---|---|---|---|---|---|"
+row "поток на запрос" "$PLATFORM"
+row "виртуальные потоки" "$VIRTUAL"
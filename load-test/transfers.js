@@ -0,0 +1,86 @@
+// Нагрузочный сценарий k6: просмотр карт и переводы между своими картами.
+// Сравнение режимов — см. раздел «Нагрузочное тестирование» в README.
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e VUS=400 -e DURATION=2m \
+//          --summary-export=load-test/result-platform.json load-test/transfers.js
+import http from 'k6/http';
+import encoding from 'k6/encoding';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const ADMIN_EMAIL = __ENV.ADMIN_EMAIL || 'admin1@example.com';
+const ADMIN_PASSWORD = __ENV.ADMIN_PASSWORD || '12345';
+// Пользователей с парой карт: переводы разных VU не упираются в блокировку одной карты
+const USERS = parseInt(__ENV.USERS || '50');
+
+export const options = {
+    scenarios: {
+        mixed: {
+            executor: 'constant-vus',
+            vus: parseInt(__ENV.VUS || '400'),
+            duration: __ENV.DURATION || '2m',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+    summaryTrendStats: ['avg', 'p(50)', 'p(95)', 'p(99)', 'max'],
+};
+
+const JSON_HEADERS = { 'Content-Type': 'application/json' };
+
+function auth(token) {
+    return { headers: Object.assign({ Authorization: `Bearer ${token}` }, JSON_HEADERS) };
+}
+
+function post(path, body, params) {
+    return http.post(`${BASE_URL}${path}`, JSON.stringify(body), params || { headers: JSON_HEADERS });
+}
+
+function userId(token) {
+    return JSON.parse(encoding.b64decode(token.split('.')[1], 'rawurl', 's')).uid;
+}
+
+function cardNumber() {
+    let digits = '4';
+    for (let i = 0; i < 15; i++) digits += Math.floor(Math.random() * 10);
+    return digits.match(/.{4}/g).join(' ');
+}
+
+export function setup() {
+    const admin = post('/auth/login', { email: ADMIN_EMAIL, password: ADMIN_PASSWORD }).json('token');
+    const run = Date.now();
+    const users = [];
+    for (let i = 0; i < USERS; i++) {
+        const token = post('/auth/register', {
+            email: `load-${run}-${i}@example.com`,
+            password: 'load-test',
+            fullName: `Load ${i}`,
+        }).json('token');
+        const id = userId(token);
+        const cards = [0, 1].map(() => post('/api/admin/cards', {
+            ownerId: id,
+            number: cardNumber(),
+            expiresAt: '2030-12-31',
+            balance: 1000000,
+        }, auth(admin)).json('id'));
+        users.push({ token, id, cards });
+    }
+    return { users };
+}
+
+export default function (data) {
+    const user = data.users[(__VU - 1) % data.users.length];
+    const params = auth(user.token);
+
+    const list = http.get(`${BASE_URL}/api/users/${user.id}/cards?size=20`, params);
+    check(list, { 'cards 200': (r) => r.status === 200 });
+
+    const forward = __ITER % 2 === 0;
+    const transfer = post(`/api/users/${user.id}/transfers`, {
+        fromCardId: user.cards[forward ? 0 : 1],
+        toCardId: user.cards[forward ? 1 : 0],
+        amount: 1.00,
+    }, params);
+    check(transfer, { 'transfer 201': (r) => r.status === 201 });
+}
@@ -0,0 +1,105 @@
+package ru.bank.cards.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Ограничивает число одновременно выданных соединений семафором. Нужен при виртуальных потоках:
+ * запросов в работе может быть сколько угодно, а к PostgreSQL одновременно идут не больше
+ * {@code permits}; остальные ждут разрешения не дольше {@code acquireTimeoutMs}.
+ * <p>
+ * Ограничиваются только вызовы, для которых {@code limited} истинно; остальные идут прямо в пул.
+ */
+public class ConcurrencyLimitingDataSource extends DelegatingDataSource {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final BooleanSupplier limited;
+
+    public ConcurrencyLimitingDataSource(DataSource target, int permits, long acquireTimeoutMs) {
+        this(target, permits, acquireTimeoutMs, () -> true);
+    }
+
+    public ConcurrencyLimitingDataSource(DataSource target, int permits, long acquireTimeoutMs, BooleanSupplier limited) {
+        super(target);
+        this.permits = new Semaphore(Math.max(1, permits), true);
+        this.acquireTimeoutMs = Math.max(0, acquireTimeoutMs);
+        this.limited = limited;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!limited.getAsBoolean()) return super.getConnection();
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        if (!limited.getAsBoolean()) return super.getConnection(username, password);
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Свободные разрешения.
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    private void acquire() throws SQLException {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException(
+                        "Превышен лимит одновременных обращений к БД, ожидание " + acquireTimeoutMs + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения с БД прервано", e);
+        }
+    }
+
+    /**
+     * Разрешение возвращается при первом {@code close()} соединения.
+     */
+    private Connection releasingOnClose(Connection target) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && method.getParameterCount() == 0) {
+                        try {
+                            target.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) permits.release();
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
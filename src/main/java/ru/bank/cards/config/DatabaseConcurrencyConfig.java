@@ -0,0 +1,55 @@
+package ru.bank.cards.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+
+/**
+ * Лимит одновременных обращений HTTP-запросов к БД ({@link ConcurrencyLimitingDataSource}), включается
+ * {@code db.concurrency-limit.enabled}. Лимит меньше пула Hikari на {@code reserved} соединений:
+ * задачи вне запросов (@Scheduled, свёртка журнала, @Async) семафор не проходят и берут соединения
+ * из этого запаса, даже когда запросы заняли все разрешения. Ожидание разрешения по умолчанию равно
+ * {@code connection-timeout} пула: запрос с разрешением получает соединение сразу, и второго
+ * бюджета ожидания нет.
+ * <p>
+ * Оборачивается только основной бин {@code dataSource}: при чтении с реплики это маршрутизирующий
+ * источник, и пулы за ним второй раз не ограничиваются.
+ */
+@Configuration
+@ConditionalOnProperty(name = "db.concurrency-limit.enabled", havingValue = "true")
+public class DatabaseConcurrencyConfig {
+
+    @Bean
+    static BeanPostProcessor concurrencyLimitingDataSourcePostProcessor(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+            @Value("${db.concurrency-limit.reserved:2}") int reserved,
+            @Value("${db.concurrency-limit.permits:0}") int permits,
+            @Value("${db.concurrency-limit.acquire-timeout-ms:${spring.datasource.hikari.connection-timeout:30000}}") long acquireTimeoutMs) {
+        int limit = permits(poolSize, reserved, permits);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof ConcurrencyLimitingDataSource)) {
+                    return new ConcurrencyLimitingDataSource(dataSource, limit, acquireTimeoutMs,
+                            () -> RequestContextHolder.getRequestAttributes() != null);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Явно заданный лимит ({@code permits > 0}) или размер пула за вычетом запаса; не меньше одного
+     * и не больше {@code poolSize - 1}, чтобы у задач вне запросов оставалось хотя бы одно соединение.
+     */
+    static int permits(int poolSize, int reserved, int permits) {
+        int limit = permits > 0 ? permits : poolSize - Math.max(0, reserved);
+        return Math.max(1, Math.min(limit, poolSize - 1));
+    }
+}
@@ -0,0 +1,39 @@
+package ru.bank.cards.config;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import ru.bank.cards.service.ReadYourWrites;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Источник соединений для read-only транзакций: реплика, если она не отстаёт и поток
+ * не требует свежих данных ({@link ReadYourWrites}), иначе основная БД.
+ */
+public class ReplicaAwareDataSource extends AbstractDataSource {
+
+    private final DataSource replica;
+    private final DataSource primary;
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaAwareDataSource(DataSource replica, DataSource primary, ReplicaLagMonitor lagMonitor) {
+        this.replica = replica;
+        this.primary = primary;
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    DataSource target() {
+        return !ReadYourWrites.primaryRequired() && lagMonitor.usable() ? replica : primary;
+    }
+}
@@ -0,0 +1,60 @@
+package ru.bank.cards.config;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+
+/**
+ * Периодически измеряет отставание реплики. Реплика считается пригодной, пока отставание
+ * не больше {@code maxLagMs} и замер удаётся; иначе чтения идут на основную БД.
+ */
+public class ReplicaLagMonitor {
+
+    /**
+     * Отставание в мс: 0, если всё полученное WAL уже применено (простой без записей
+     * не считается отставанием).
+     */
+    private static final String LAG_SQL = """
+            SELECT CASE
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                   END
+            """;
+
+    private final JdbcTemplate replica;
+    private final long maxLagMs;
+    private volatile long lagMs;
+    private volatile boolean available;
+
+    public ReplicaLagMonitor(DataSource replica, long maxLagMs) {
+        this.replica = new JdbcTemplate(replica);
+        this.replica.setQueryTimeout(1);
+        this.maxLagMs = maxLagMs;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}")
+    public void check() {
+        try {
+            Double lag = replica.queryForObject(LAG_SQL, Double.class);
+            lagMs = lag == null ? 0 : lag.longValue();
+            available = true;
+        } catch (RuntimeException e) {
+            available = false;
+        }
+    }
+
+    /**
+     * Реплика доступна и отстаёт не больше допустимого.
+     */
+    public boolean usable() {
+        return available && lagMs <= maxLagMs;
+    }
+
+    /**
+     * Последнее измеренное отставание, мс; -1, если реплика недоступна.
+     */
+    public long lagMs() {
+        return available ? lagMs : -1;
+    }
+}
@@ -1,5 +1,10 @@
 package ru.bank.cards.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -8,14 +13,18 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import ru.bank.cards.security.BoundedPasswordEncoder;
 import ru.bank.cards.security.JwtAuthenticationFilter;
+import ru.bank.cards.security.RateLimitFilter;
+import ru.bank.cards.security.RateLimitProperties;
+import ru.bank.cards.security.RateLimiter;
 
 @EnableMethodSecurity
 @Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
@@ -25,7 +34,36 @@ public class SecurityConfig {
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public RateLimiter rateLimiter(RateLimitProperties properties) {
+        return new RateLimiter(properties);
+    }
+
+    @Bean
+    public RateLimitFilter rateLimitFilter(RateLimiter rateLimiter, ObjectMapper mapper, MeterRegistry meterRegistry) {
+        return new RateLimitFilter(rateLimiter, mapper, meterRegistry);
+    }
+
+    /**
+     * Лимитер работает только в цепочке безопасности (после JWT), в сервлет-контейнере фильтр не регистрируется.
+     */
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilterRegistration(RateLimitFilter rateLimitFilter) {
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(rateLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    /**
+     * Метрики Prometheus открыты без аутентификации, только если actuator слушает отдельный
+     * внутренний порт ({@code management.server.port}, профиль prod); на общем порту — только для ADMIN.
+     */
+    @Bean
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, RateLimitFilter rateLimitFilter,
+                                                   @Value("${management.server.port:}") String managementPort,
+                                                   @Value("${server.port:8080}") String serverPort) throws Exception {
+        String[] publicActuator = separatePort(managementPort, serverPort)
+                ? new String[]{"/actuator/health/**", "/actuator/prometheus"}
+                : new String[]{"/actuator/health/**"};
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(auth -> auth
@@ -36,19 +74,36 @@ public class SecurityConfig {
                                  "/v3/api-docs/**"
                         ).permitAll()
                         .requestMatchers("/auth/**").permitAll()
+                        // Пробы открыты всегда, сбор метрик — только на внутреннем порту actuator
+                        .requestMatchers(publicActuator).permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
-                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
     }
 
+    /**
+     * Actuator слушает свой порт, отличный от порта приложения.
+     */
+    static boolean separatePort(String managementPort, String serverPort) {
+        return !managementPort.isBlank() && !managementPort.trim().equals(serverPort.trim());
+    }
+
+    /**
+     * BCrypt на отдельном ограниченном пуле (см. {@link BoundedPasswordEncoder}).
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${security.password.bcrypt-strength:10}") int strength,
+                                           @Value("${security.password.hash-threads:0}") int threads,
+                                           @Value("${security.password.queue-capacity:16}") int queueCapacity,
+                                           MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -4,17 +4,27 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.bank.cards.dto.BulkBlockRequest;
+import ru.bank.cards.dto.BulkBlockResponse;
+import ru.bank.cards.dto.BulkIssueResponse;
 import ru.bank.cards.dto.CardResponse;
 import ru.bank.cards.dto.CreateCardRequest;
 import ru.bank.cards.dto.PageResponse;
+import ru.bank.cards.dto.SliceResponse;
 import ru.bank.cards.dto.UpdateCardStatusRequest;
 import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.service.CardIssueService;
+import ru.bank.cards.service.CardIssueService.ImportFormat;
 import ru.bank.cards.service.CardService;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.UUID;
 
 /**
@@ -28,9 +38,11 @@ import java.util.UUID;
 public class AdminCardController {
 
     private final CardService cards;
+    private final CardIssueService issue;
 
-    public AdminCardController(CardService cards) {
+    public AdminCardController(CardService cards, CardIssueService issue) {
         this.cards = cards;
+        this.issue = issue;
     }
 
     /**
@@ -47,6 +59,20 @@ public class AdminCardController {
         return cards.getAll(ownerId, status, page, size);
     }
 
+    /**
+     * Получить список всех карт с курсорной пагинацией.
+     */
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Получить список всех карт (курсорная пагинация)",
+            description = "Страницы без OFFSET и подсчёта общего количества. Для следующей страницы передайте nextCursor в параметре after.")
+    public SliceResponse<CardResponse> scrollAll(@RequestParam(value = "ownerId", required = false) UUID ownerId,
+                                                 @RequestParam(value = "status", required = false) CardStatus status,
+                                                 @RequestParam(value = "after", required = false) String after,
+                                                 @RequestParam(defaultValue = "20", value = "size") @Min(1) @Max(100) int size) {
+        return cards.scrollAll(ownerId, status, after, size);
+    }
+
     /**
      * Получить все карты, ожидающие блокировки.
      */
@@ -60,6 +86,18 @@ public class AdminCardController {
         return cards.getAll(null, ru.bank.cards.entity.CardStatus.PENDING_BLOCK, page, size);
     }
 
+    /**
+     * Подтвердить блокировку карт пакетом.
+     */
+    @PostMapping("/pending-block/approve")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Подтвердить блокировку карт",
+            description = "Переводит выбранные карты (или все, если список не передан) из PENDING_BLOCK в BLOCKED одним запросом. "
+                    + "Карты в другом статусе пропускаются.")
+    public BulkBlockResponse approveBlocks(@Valid @RequestBody(required = false) BulkBlockRequest request) {
+        return cards.approveBlocks(request == null ? null : request.getCardIds());
+    }
+
     /**
      * Создать карту.
      */
@@ -72,6 +110,21 @@ public class AdminCardController {
         return cards.create(request);
     }
 
+    /**
+     * Выпустить карты пакетом.
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Выпустить карты пакетом",
+            description = "Принимает поток NDJSON (объект CreateCardRequest на строку) или CSV с заголовком "
+                    + "ownerId,number,expiresAt,balance. Корректные строки вставляются пачками, каждая в своей транзакции; "
+                    + "отклонённые строки (ошибки проверки, неизвестный владелец, существующий номер) перечисляются в ответе. "
+                    + "При ошибке БД обработка останавливается, в failedChunk — строки несостоявшейся пачки.")
+    public BulkIssueResponse issueBulk(@RequestParam(defaultValue = "NDJSON", value = "format") ImportFormat format,
+                                       InputStream body) throws IOException {
+        return issue.issue(body, format);
+    }
+
     /**
      * Обновить статус карты.
      */
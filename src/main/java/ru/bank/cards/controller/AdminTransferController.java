@@ -0,0 +1,60 @@
+package ru.bank.cards.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.bank.cards.service.TransferHistoryService;
+import ru.bank.cards.service.TransferHistoryService.ExportFormat;
+
+import java.time.Instant;
+
+/**
+ * Админ-операции над переводами.
+ */
+@RestController
+@RequestMapping("/api/admin/transfers")
+@SecurityRequirement(name = "bearerAuth")
+@Tag(name = "Функции админа", description = "Возможности админа")
+public class AdminTransferController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
+    private final TransferHistoryService history;
+
+    public AdminTransferController(TransferHistoryService history) {
+        this.history = history;
+    }
+
+    /**
+     * Выгрузка переводов за период.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Выгрузить переводы за период",
+            description = "Потоковая выгрузка переводов с createdAt в [from, to) в формате NDJSON или CSV, упорядочена по времени.")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(defaultValue = "NDJSON", value = "format") ExportFormat format) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        String extension = format == ExportFormat.CSV ? "csv" : "ndjson";
+        return ResponseEntity.ok()
+                .contentType(format == ExportFormat.CSV ? CSV : NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"transfers-" + from.getEpochSecond() + "-" + to.getEpochSecond() + "." + extension + "\"")
+                .body(out -> history.export(from, to, format, out));
+    }
+}
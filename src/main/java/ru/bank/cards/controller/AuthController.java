@@ -60,9 +60,7 @@ public class AuthController {
                 .createdAt(Instant.now())
                 .build();
 
-        users.save(user);
-
-        String token = jwtService.generateToken(user.getEmail());
+        String token = jwtService.generateToken(users.save(user));
 
         return ResponseEntity.ok(Map.of("token", token));
     }
@@ -78,7 +76,7 @@ public class AuthController {
 
             User user = users.findByEmail(request.getEmail()).orElseThrow();
 
-            String token = jwtService.generateToken(user.getEmail());
+            String token = jwtService.generateToken(user);
 
             return ResponseEntity.ok(Map.of("token", token));
         } catch (AuthenticationException e) {
@@ -4,17 +4,28 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.bank.cards.dto.*;
 import ru.bank.cards.service.CardService;
+import ru.bank.cards.service.ReadYourWrites;
+import ru.bank.cards.service.TransferHistoryService;
 import ru.bank.cards.service.TransferService;
+import ru.bank.cards.util.ETagUtil;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
- * Пользовательские операции.
+ * Пользовательские операции. После изменений пользователя его чтения на время
+ * {@code app.datasource.replica.read-your-writes-ms} идут на основную БД ({@link ReadYourWrites}).
  */
 @RestController
 @Validated
@@ -25,10 +36,15 @@ public class UserCardController {
 
     private final CardService cards;
     private final TransferService transfers;
+    private final TransferHistoryService history;
+    private final ReadYourWrites readYourWrites;
 
-    public UserCardController(CardService cards, TransferService transfers) {
+    public UserCardController(CardService cards, TransferService transfers, TransferHistoryService history,
+                              ReadYourWrites readYourWrites) {
         this.cards = cards;
         this.transfers = transfers;
+        this.history = history;
+        this.readYourWrites = readYourWrites;
     }
 
     /**
@@ -41,27 +57,63 @@ public class UserCardController {
                                               @RequestParam(required = false, value = "search") String search,
                                               @RequestParam(defaultValue = "0", value = "page") int page,
                                               @RequestParam(defaultValue = "20", value = "size") int size) {
-        return cards.getUserCards(userId, search, page, size);
+        return readYourWrites.read(userId, () -> cards.getUserCards(userId, search, page, size));
     }
 
     /**
-     * Конкретная карта пользователя.
+     * Список карт пользователя с курсорной пагинацией.
+     */
+    @GetMapping("/cards/scroll")
+    @Operation(summary = "Посмотреть свои карты (курсорная пагинация)",
+            description = "Страницы без OFFSET и подсчёта общего количества. Для следующей страницы передайте nextCursor в параметре after.")
+    public SliceResponse<CardResponse> scrollMyCards(@PathVariable("userId") UUID userId,
+                                                     @RequestParam(required = false, value = "search") String search,
+                                                     @RequestParam(required = false, value = "after") String after,
+                                                     @RequestParam(defaultValue = "20", value = "size") @Min(1) @Max(100) int size) {
+        return readYourWrites.read(userId, () -> cards.scrollUserCards(userId, search, after, size));
+    }
+
+    /**
+     * Конкретная карта пользователя. При совпадении If-None-Match с ETag карты отвечает 304
+     * по запросу версии и баланса, не загружая карту.
      */
     @GetMapping("/cards/{cardId}")
     @Operation(summary = "Посмотреть конкретную карту",
-            description = "Позволяет посмотреть определённую карту пользователя.")
-    public CardResponse card(@PathVariable("userId") UUID userId, @PathVariable("cardId") UUID cardId) {
-        return cards.getUserCard(userId, cardId);
+            description = "Позволяет посмотреть определённую карту пользователя. Ответ содержит ETag; "
+                    + "запрос с тем же If-None-Match получает 304 без тела, пока карта не изменилась.")
+    public CardResponse card(@PathVariable("userId") UUID userId, @PathVariable("cardId") UUID cardId,
+                             WebRequest request) {
+        return readYourWrites.read(userId, () -> {
+            Optional<String> etag = cards.getUserCardETag(userId, cardId);
+            if (etag.isPresent() && request.checkNotModified(etag.get())) return null;
+            return cards.getUserCard(userId, cardId);
+        });
     }
 
     /**
-     * Баланс карты.
+     * Баланс карты. ETag считается по балансу из кэша, при совпадении с If-None-Match — 304.
      */
     @GetMapping("/cards/{cardId}/balance")
     @Operation(summary = "Посмотреть баланс конкретной карты",
-            description = "Возвращает баланс выбранной карты пользователя.")
-    public BalanceResponse balance(@PathVariable("userId") UUID userId, @PathVariable("cardId") UUID cardId) {
-        return cards.getUserCardBalance(userId, cardId);
+            description = "Возвращает баланс выбранной карты пользователя. Ответ содержит ETag; "
+                    + "запрос с тем же If-None-Match получает 304 без тела, пока баланс не изменился.")
+    public BalanceResponse balance(@PathVariable("userId") UUID userId, @PathVariable("cardId") UUID cardId,
+                                   WebRequest request) {
+        BalanceResponse response = readYourWrites.read(userId, () -> cards.getUserCardBalance(userId, cardId));
+        if (request.checkNotModified(ETagUtil.balance(response.getCardId(), response.getBalance()))) return null;
+        return response;
+    }
+
+    /**
+     * История переводов пользователя.
+     */
+    @GetMapping("/transfers")
+    @Operation(summary = "Посмотреть историю своих переводов",
+            description = "Переводы от новых к старым с курсорной пагинацией. Для следующей страницы передайте nextCursor в параметре after.")
+    public SliceResponse<TransferResponse> transfers(@PathVariable("userId") UUID userId,
+                                                     @RequestParam(required = false, value = "after") String after,
+                                                     @RequestParam(defaultValue = "20", value = "size") @Min(1) @Max(100) int size) {
+        return readYourWrites.read(userId, () -> history.history(userId, after, size));
     }
 
     /**
@@ -70,9 +122,28 @@ public class UserCardController {
     @PostMapping("/transfers")
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary = "Перевести деньги между своими картами",
-            description = "Создаёт перевод между своими картами пользователя.")
-    public TransferResponse transfer(@PathVariable("userId") UUID userId, @Valid @RequestBody TransferRequest request) {
-        return transfers.transfer(userId, request);
+            description = "Создаёт перевод между своими картами пользователя. Повтор запроса с тем же заголовком "
+                    + "Idempotency-Key возвращает ответ первого запроса, не выполняя перевод повторно.")
+    public TransferResponse transfer(@PathVariable("userId") UUID userId,
+                                     @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                     @Valid @RequestBody TransferRequest request) {
+        TransferResponse response = transfers.transfer(userId, request, idempotencyKey);
+        readYourWrites.written(userId);
+        return response;
+    }
+
+    /**
+     * Пакет переводов между своими картами в одной транзакции.
+     */
+    @PostMapping("/transfers/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Выполнить пакет переводов между своими картами",
+            description = "Выполняет список переводов в одной транзакции: либо все переводы проходят, либо ни один.")
+    public List<TransferResponse> transferBatch(@PathVariable("userId") UUID userId,
+                                                @RequestBody @NotEmpty @Size(max = 10_000) List<@Valid TransferRequest> requests) {
+        List<TransferResponse> responses = transfers.transferBatch(userId, requests);
+        readYourWrites.written(userId);
+        return responses;
     }
 
     /**
@@ -82,6 +153,8 @@ public class UserCardController {
     @Operation(summary = "Запросить блокировку карты",
             description = "Пользователь отправляет запрос на блокировку своей карты. Админ может подтвердить блокировку.")
     public CardResponse requestBlock(@PathVariable("userId") UUID userId, @PathVariable("cardId") UUID cardId) {
-        return cards.requestBlock(userId, cardId);
+        CardResponse response = cards.requestBlock(userId, cardId);
+        readYourWrites.written(userId);
+        return response;
     }
 }
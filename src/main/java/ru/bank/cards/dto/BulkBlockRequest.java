@@ -0,0 +1,20 @@
+package ru.bank.cards.dto;
+
+import jakarta.validation.constraints.Size;
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Пакетное подтверждение блокировки (админ). Пустой список — все карты, ожидающие блокировки.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkBlockRequest {
+    @Size(max = 10_000)
+    private List<UUID> cardIds;
+}
@@ -0,0 +1,15 @@
+package ru.bank.cards.dto;
+
+import lombok.*;
+
+/**
+ * Результат пакетного подтверждения блокировки.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkBlockResponse {
+    private int blocked;
+}
@@ -0,0 +1,55 @@
+package ru.bank.cards.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Результат пакетного выпуска карт: сколько создано и какие строки отклонены.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class BulkIssueResponse {
+    private int created;
+    private int failed;
+    /**
+     * Ошибки по строкам, не больше {@code card.bulk-issue.max-errors}; остальные учтены только в {@code failed}.
+     */
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+    /**
+     * Пачка, которую не удалось вставить из-за ошибки БД; после неё поток не читается.
+     * {@code null}, если все пачки закоммичены.
+     */
+    private ChunkFailure failedChunk;
+
+    /**
+     * Ошибка строки входного файла (номер строки с 1, заголовок CSV тоже считается).
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+
+    /**
+     * Строки пачки с {@code firstLine} по {@code lastLine} не выпущены; карты из {@code created}
+     * закоммичены предыдущими пачками. Повтор файла целиком пропустит их как существующие номера.
+     */
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Getter
+    @Setter
+    public static class ChunkFailure {
+        private long firstLine;
+        private long lastLine;
+        private String message;
+    }
+}
@@ -0,0 +1,23 @@
+package ru.bank.cards.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Страница курсорной (keyset) пагинации: без подсчёта общего количества.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class SliceResponse<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    /**
+     * Непрозрачный курсор для параметра {@code after} следующего запроса; null на последней странице.
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,34 @@
+package ru.bank.cards.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.*;
+import ru.bank.cards.entity.TransferStatus;
+import ru.bank.cards.util.MaskedPanSerializer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Строка выгрузки переводов. Номера карт хранятся полными и маскируются при записи.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class TransferExportRow {
+    private UUID id;
+    private Instant createdAt;
+    private UUID fromCardId;
+    @JsonProperty("fromMaskedNumber")
+    @JsonSerialize(using = MaskedPanSerializer.class)
+    private String fromCardNumber;
+    private UUID toCardId;
+    @JsonProperty("toMaskedNumber")
+    @JsonSerialize(using = MaskedPanSerializer.class)
+    private String toCardNumber;
+    private BigDecimal amount;
+    private TransferStatus status;
+}
@@ -2,8 +2,11 @@ package ru.bank.cards.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Formula;
+import ru.bank.cards.util.MaskingUtil;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.UUID;
 
@@ -20,12 +23,18 @@ import java.util.UUID;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Generated
     private UUID id;
 
     @Column(name = "number", nullable = false, unique = true, length = 32)
     private String cardNumber;
 
+    /**
+     * Последние 4 цифры номера, хранятся отдельно для индексного поиска.
+     */
+    @Column(name = "pan_last4", nullable = false, length = 4)
+    private String panLast4;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
@@ -37,10 +46,34 @@ public class Card {
     @Column(nullable = false, length = 16)
     private CardStatus status = CardStatus.ACTIVE;
 
-    @Column(nullable = false, precision = 19, scale = 2)
+    /**
+     * Когда пользователь запросил блокировку; по нему работает автоподтверждение.
+     */
+    @Column(name = "block_requested_at")
+    private Instant blockRequestedAt;
+
+    /**
+     * Снимок баланса на момент последней свёртки журнала. Записывается при создании карты,
+     * дальше меняется только свёрткой ({@link ru.bank.cards.repository.LedgerEntryRepository#rollUp}).
+     */
+    @Column(name = "balance", nullable = false, updatable = false, precision = 19, scale = 2)
+    @Builder.Default
+    private BigDecimal snapshotBalance = BigDecimal.ZERO;
+
+    /**
+     * Текущий баланс: снимок плюс проводки журнала после него, вычисляется в том же запросе, что и карта.
+     */
+    @Formula("balance + coalesce((select sum(e.amount) from ledger_entry e where e.card_id = id and e.tx_id >= ledger_xid), 0)")
+    @Builder.Default
     private BigDecimal balance = BigDecimal.ZERO;
 
     @Version
     @Column(nullable = false)
     private int version = 0;
+
+    @PrePersist
+    @PreUpdate
+    void fillPanLast4() {
+        panLast4 = MaskingUtil.last4(cardNumber);
+    }
 }
@@ -0,0 +1,63 @@
+package ru.bank.cards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Проводка журнала балансов. Журнал только дополняется: на каждый перевод — списание
+ * (отрицательная сумма) с карты-отправителя и зачисление на карту-получателя.
+ * <p>
+ * Колонка {@code tx_id} (id транзакции PostgreSQL) заполняется базой и используется свёрткой
+ * журнала в снимок баланса карты.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Builder
+@Immutable
+@Table(name = "ledger_entry")
+public class LedgerEntry {
+
+    @Id
+    @UuidV7Generated
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "card_id", nullable = false)
+    private Card card;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "transfer_id", nullable = false)
+    private Transfer transfer;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    public static LedgerEntry debit(Transfer transfer) {
+        return LedgerEntry.builder()
+                .card(transfer.getFromCard())
+                .transfer(transfer)
+                .amount(transfer.getAmount().negate())
+                .createdAt(transfer.getCreatedAt())
+                .build();
+    }
+
+    public static LedgerEntry credit(Transfer transfer) {
+        return LedgerEntry.builder()
+                .card(transfer.getToCard())
+                .transfer(transfer)
+                .amount(transfer.getAmount())
+                .createdAt(transfer.getCreatedAt())
+                .build();
+    }
+}
@@ -20,7 +20,7 @@ import java.util.UUID;
 public class Transfer {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.UUID)
+    @UuidV7Generated
     private UUID id;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
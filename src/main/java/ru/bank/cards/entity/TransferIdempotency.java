@@ -0,0 +1,45 @@
+package ru.bank.cards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Ключ идемпотентности перевода: повтор запроса с тем же {@code Idempotency-Key} возвращает
+ * сохранённый ответ вместо нового перевода.
+ */
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Builder
+@Table(name = "transfer_idempotency")
+public class TransferIdempotency {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;
+
+    /**
+     * SHA-256 параметров запроса: тот же ключ с другими параметрами отклоняется.
+     */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * {@link ru.bank.cards.dto.TransferResponse} в JSON; заполняется в транзакции перевода.
+     */
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+}
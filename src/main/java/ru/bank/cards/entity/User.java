@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import ru.bank.cards.security.UserCacheInvalidator;
 
 import java.time.Instant;
 import java.util.Collection;
@@ -20,6 +21,7 @@ import java.util.UUID;
 @Entity
 @Builder
 @Table(name = "app_user")
+@EntityListeners(UserCacheInvalidator.class)
 public class User implements UserDetails {
 
     @Id
@@ -42,6 +44,22 @@ public class User implements UserDetails {
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 
+    /**
+     * Email на момент загрузки из БД: после его смены {@link UserCacheInvalidator} сбрасывает и старую запись.
+     */
+    @Transient
+    @Setter(AccessLevel.NONE)
+    private String loadedEmail;
+
+    /**
+     * Вызывается после слушателей сущности, поэтому при {@code @PostUpdate} они ещё видят прежний email.
+     */
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberEmail() {
+        loadedEmail = email;
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
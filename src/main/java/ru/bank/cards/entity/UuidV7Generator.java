@@ -0,0 +1,31 @@
+package ru.bank.cards.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+import ru.bank.cards.util.UuidV7;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+
+/**
+ * Hibernate-генератор для {@link UuidV7Generated}. Значение известно до INSERT,
+ * поэтому вставки остаются пакетными (в отличие от IDENTITY).
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    public UuidV7Generator(UuidV7Generated config, Member member, CustomIdGeneratorCreationContext context) {
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        return UuidV7.next();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
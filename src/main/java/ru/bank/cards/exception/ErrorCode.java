@@ -10,5 +10,7 @@ public enum ErrorCode {
     NOT_ENOUGH_FUNDS,
     SAME_CARD,
     INVALID_AMOUNT,
-    NOT_FOUND
+    NOT_FOUND,
+    CONCURRENT_UPDATE,
+    IDEMPOTENCY_KEY_REUSED
 }
\ No newline at end of file
@@ -1,22 +1,32 @@
 package ru.bank.cards.exception;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.bank.cards.security.PasswordHashingBusyException;
 
 import java.util.NoSuchElementException;
 
 /**
- * Глобальный перехват и форматирование ошибок.
+ * Глобальный перехват и форматирование ошибок. Каждый ответ учитывается счётчиком
+ * {@code api.errors} с тегами {@code status} и {@code error}.
  */
 @RestControllerAdvice
 public class ErrorHandler {
 
+    private final MeterRegistry meterRegistry;
+
+    public ErrorHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @ExceptionHandler({IllegalArgumentException.class, ConstraintViolationException.class, MethodArgumentNotValidException.class})
     public ResponseEntity<ApiError> handleBadRequest(Exception ex, HttpServletRequest req) {
         ApiError body = ApiError.builder()
@@ -25,7 +35,7 @@ public class ErrorHandler {
                 .message(ex.getMessage())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.badRequest().body(body);
+        return count(ResponseEntity.badRequest().body(body));
     }
 
     @ExceptionHandler({EntityNotFoundException.class, NoSuchElementException.class})
@@ -36,7 +46,7 @@ public class ErrorHandler {
                 .message(ex.getMessage())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+        return count(ResponseEntity.status(HttpStatus.NOT_FOUND).body(body));
     }
 
     @ExceptionHandler(EntityException.class)
@@ -47,7 +57,20 @@ public class ErrorHandler {
                 .message(ex.getMessage())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.status(422).body(body);
+        return count(ResponseEntity.status(422).body(body));
+    }
+
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<ApiError> handleBusy(PasswordHashingBusyException ex, HttpServletRequest req) {
+        ApiError body = ApiError.builder()
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .error("Service Unavailable")
+                .message(ex.getMessage())
+                .path(req.getRequestURI())
+                .build();
+        return count(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body));
     }
 
     @ExceptionHandler(Exception.class)
@@ -58,6 +81,14 @@ public class ErrorHandler {
                 .message(ex.getMessage())
                 .path(req.getRequestURI())
                 .build();
-        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
+        return count(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body));
+    }
+
+    private ResponseEntity<ApiError> count(ResponseEntity<ApiError> response) {
+        ApiError body = response.getBody();
+        meterRegistry.counter("api.errors",
+                "status", String.valueOf(body.getStatus()),
+                "error", body.getError()).increment();
+        return response;
     }
 }
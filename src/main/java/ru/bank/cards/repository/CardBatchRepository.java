@@ -0,0 +1,85 @@
+package ru.bank.cards.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Вставка карт пачкой одним оператором: колонки передаются массивами и разворачиваются
+ * через {@code unnest}, поэтому на пачку — один round-trip и один план.
+ */
+@Repository
+public class CardBatchRepository {
+
+    /**
+     * Новая карта в статусе ACTIVE.
+     */
+    public record NewCard(UUID id, String number, String panLast4, UUID ownerId, LocalDate expiresAt, BigDecimal balance) {
+    }
+
+    private static final String INSERT = """
+            INSERT INTO card (id, number, pan_last4, owner_id, expires_at, status, balance, version)
+            SELECT r.id::uuid, r.number, r.pan_last4, r.owner_id::uuid, r.expires_at::date, 'ACTIVE', r.balance::numeric, 0
+            FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+                 AS r(id, number, pan_last4, owner_id, expires_at, balance)
+            ON CONFLICT (number) DO NOTHING
+            RETURNING number
+            """;
+
+    private final JdbcTemplate jdbc;
+
+    public CardBatchRepository(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Вставляет карты, пропуская номера, которые уже есть в БД (или повторяются в пачке).
+     * Возвращает номера вставленных карт.
+     */
+    public Set<String> insertSkippingDuplicates(List<NewCard> cards) {
+        if (cards.isEmpty()) return Set.of();
+        int n = cards.size();
+        String[] ids = new String[n];
+        String[] numbers = new String[n];
+        String[] last4 = new String[n];
+        String[] owners = new String[n];
+        String[] expires = new String[n];
+        String[] balances = new String[n];
+        for (int i = 0; i < n; i++) {
+            NewCard c = cards.get(i);
+            ids[i] = c.id().toString();
+            numbers[i] = c.number();
+            last4[i] = c.panLast4();
+            owners[i] = c.ownerId().toString();
+            expires[i] = c.expiresAt().toString();
+            balances[i] = c.balance().toPlainString();
+        }
+        Set<String> inserted = new HashSet<>(n * 2);
+        jdbc.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT);
+            setText(con, ps, 1, ids);
+            setText(con, ps, 2, numbers);
+            setText(con, ps, 3, last4);
+            setText(con, ps, 4, owners);
+            setText(con, ps, 5, expires);
+            setText(con, ps, 6, balances);
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getString(1));
+        });
+        return inserted;
+    }
+
+    private static void setText(Connection con, PreparedStatement ps, int index, String[] values) throws SQLException {
+        ps.setArray(index, con.createArrayOf("text", values));
+    }
+}
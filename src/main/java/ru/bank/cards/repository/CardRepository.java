@@ -1,23 +1,210 @@
 package ru.bank.cards.repository;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.bank.cards.entity.Card;
 import ru.bank.cards.entity.CardStatus;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Репозиторий карт.
+ * <p>
+ * Методы листингов подгружают владельца тем же запросом ({@code @EntityGraph}),
+ * чтобы построение {@code CardResponse} не порождало отдельный SELECT на каждую карту.
  */
 public interface CardRepository extends JpaRepository<Card, UUID> {
+
+    /**
+     * Версия и баланс карты и имя владельца для ETag.
+     */
+    interface CardTag {
+        int getVersion();
+
+        BigDecimal getBalance();
+
+        String getOwnerName();
+    }
+
+    @EntityGraph(attributePaths = "owner")
+    Optional<Card> findWithOwnerById(UUID id);
+
+    /**
+     * Версия, баланс и имя владельца карты без загрузки карты и владельца; пусто, если карта чужая.
+     */
+    @Query("""
+            select c.version as version, c.balance as balance, o.fullName as ownerName
+            from Card c join c.owner o
+            where c.id = :id and o.id = :ownerId
+            """)
+    Optional<CardTag> findTagByIdAndOwnerId(@Param("id") UUID id, @Param("ownerId") UUID ownerId);
+
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Page<Card> findAll(Pageable pageable);
+
+    @EntityGraph(attributePaths = "owner")
     Page<Card> findByOwner_Id(UUID ownerId, Pageable pageable);
 
-    Page<Card> findByOwner_IdAndCardNumberEndingWith(UUID ownerId, String last4, Pageable pageable);
+    @EntityGraph(attributePaths = "owner")
+    Page<Card> findByOwner_IdAndPanLast4(UUID ownerId, String panLast4, Pageable pageable);
 
+    @EntityGraph(attributePaths = "owner")
+    Page<Card> findByOwner_IdAndPanLast4EndingWith(UUID ownerId, String digits, Pageable pageable);
+
+    /**
+     * Карты владельца, номер которых без пробелов подходит под {@code numberPattern} ({@code %цифры}):
+     * индекс (owner_id, pan_last4) сужает выборку до карт с теми же последними 4 цифрами,
+     * остальные цифры проверяются по номеру.
+     */
+    @EntityGraph(attributePaths = "owner")
+    @Query(value = """
+            select c from Card c
+            where c.owner.id = :ownerId and c.panLast4 = :panLast4
+              and replace(c.cardNumber, ' ', '') like :numberPattern
+            """, countQuery = """
+            select count(c) from Card c
+            where c.owner.id = :ownerId and c.panLast4 = :panLast4
+              and replace(c.cardNumber, ' ', '') like :numberPattern
+            """)
+    Page<Card> findByOwnerAndNumberSuffix(@Param("ownerId") UUID ownerId, @Param("panLast4") String panLast4,
+                                          @Param("numberPattern") String numberPattern, Pageable pageable);
+
+    /**
+     * То же для курсорной пагинации: карты с id больше {@code after} в порядке id.
+     */
+    @EntityGraph(attributePaths = "owner")
+    @Query("""
+            select c from Card c
+            where c.owner.id = :ownerId and c.panLast4 = :panLast4
+              and replace(c.cardNumber, ' ', '') like :numberPattern
+              and c.id > :after
+            order by c.id
+            """)
+    List<Card> findByOwnerAndNumberSuffixAfter(@Param("ownerId") UUID ownerId, @Param("panLast4") String panLast4,
+                                               @Param("numberPattern") String numberPattern, @Param("after") UUID after,
+                                               Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
     Page<Card> findByStatusIn(List<CardStatus> statuses, Pageable pageable);
 
+    @EntityGraph(attributePaths = "owner")
     Page<Card> findByOwner_IdAndStatusIn(UUID ownerId, List<CardStatus> statuses, Pageable pageable);
+
+    // Keyset-пагинация по id: WHERE id > :after ORDER BY id LIMIT n + 1, без count-запроса.
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findAllByOrderByIdAsc(ScrollPosition position, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findByOwner_IdOrderByIdAsc(UUID ownerId, ScrollPosition position, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findByOwner_IdAndPanLast4OrderByIdAsc(UUID ownerId, String panLast4, ScrollPosition position, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findByOwner_IdAndPanLast4EndingWithOrderByIdAsc(UUID ownerId, String digits, ScrollPosition position, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findByStatusInOrderByIdAsc(List<CardStatus> statuses, ScrollPosition position, Limit limit);
+
+    @EntityGraph(attributePaths = "owner")
+    Window<Card> findByOwner_IdAndStatusInOrderByIdAsc(UUID ownerId, List<CardStatus> statuses, ScrollPosition position, Limit limit);
+
+    /**
+     * Загружает карты одним запросом с блокировкой строк (SELECT ... FOR UPDATE) в порядке id.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Загружает карты одним запросом с разделяемой блокировкой строк (SELECT ... FOR SHARE) в порядке id:
+     * зачисления на одну карту не ждут друг друга, а смена её статуса ждёт их окончания.
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForShare(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Карта с разделяемой блокировкой строки (SELECT ... FOR SHARE): смена статуса карты ждёт
+     * окончания транзакции, зачисляющей на неё.
+     */
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdForShare(@Param("id") UUID id);
+
+    /**
+     * Карта, версия которой будет увеличена при коммите: оптимистичная защита от параллельных списаний.
+     */
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    @Query("select c from Card c where c.id = :id")
+    Optional<Card> findByIdWithVersionIncrement(@Param("id") UUID id);
+
+    /**
+     * Подтверждает блокировку выбранных карт одним UPDATE; карты не в статусе PENDING_BLOCK пропускаются.
+     * Версия увеличивается, поэтому параллельное изменение загруженной ранее карты получит конфликт версий.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Card c set c.status = ru.bank.cards.entity.CardStatus.BLOCKED, c.version = c.version + 1
+            where c.status = ru.bank.cards.entity.CardStatus.PENDING_BLOCK and c.id in :ids
+            """)
+    int approveBlocks(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Подтверждает блокировку всех карт в статусе PENDING_BLOCK.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update Card c set c.status = ru.bank.cards.entity.CardStatus.BLOCKED, c.version = c.version + 1
+            where c.status = ru.bank.cards.entity.CardStatus.PENDING_BLOCK
+            """)
+    int approveAllBlocks();
+
+    /**
+     * Подтверждает блокировку до {@code limit} самых старых запросов, поданных не позже {@code before}.
+     * Строки, занятые другими транзакциями, пропускаются до следующего запуска.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE card SET status = 'BLOCKED', version = version + 1
+            WHERE id IN (SELECT id FROM card
+                         WHERE status = 'PENDING_BLOCK' AND block_requested_at <= :before
+                         ORDER BY block_requested_at
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            """)
+    int approveBlocksRequestedBefore(@Param("before") Instant before, @Param("limit") int limit);
+
+    /**
+     * Переводит в EXPIRED до {@code limit} карт со сроком действия раньше {@code today}.
+     * Строки, занятые другими транзакциями, пропускаются до следующей порции или запуска.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE card SET status = 'EXPIRED', version = version + 1
+            WHERE id IN (SELECT id FROM card
+                         WHERE expires_at < :today AND status <> 'EXPIRED'
+                         ORDER BY expires_at
+                         LIMIT :limit
+                         FOR UPDATE SKIP LOCKED)
+            """)
+    int expireBefore(@Param("today") LocalDate today, @Param("limit") int limit);
 }
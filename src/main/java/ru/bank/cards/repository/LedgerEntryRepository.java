@@ -0,0 +1,67 @@
+package ru.bank.cards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.bank.cards.entity.LedgerEntry;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Журнал проводок и свёртка его в снимки балансов карт.
+ * <p>
+ * Баланс карты = {@code card.balance} (снимок) + сумма проводок с {@code tx_id >= card.ledger_xid}.
+ * Свёртка переносит в снимок только проводки транзакций с id меньше xmin текущего снимка БД:
+ * такие транзакции уже завершены, и проводок с этими id больше не появится.
+ */
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+
+    /**
+     * Текущий баланс карты.
+     */
+    interface CardBalance {
+        UUID getCardId();
+
+        BigDecimal getBalance();
+    }
+
+    /**
+     * Текущие балансы карт одним запросом (снимок и хвост журнала читаются из одного снимка БД).
+     */
+    @Query(nativeQuery = true, value = """
+            SELECT c.id AS "cardId",
+                   c.balance + COALESCE((SELECT SUM(e.amount) FROM ledger_entry e
+                                         WHERE e.card_id = c.id AND e.tx_id >= c.ledger_xid), 0) AS "balance"
+            FROM card c
+            WHERE c.id IN (:ids)
+            """)
+    List<CardBalance> currentBalances(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Сворачивает завершённые проводки в снимки балансов для следующих {@code limit} карт.
+     * Карты, занятые переводом, ждут его окончания. Возвращает число обновлённых карт.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            WITH h AS (SELECT pg_snapshot_xmin(pg_current_snapshot()) AS xmin),
+                 batch AS (
+                     SELECT c.id FROM card c, h
+                     WHERE c.ledger_xid < h.xmin
+                       AND EXISTS (SELECT 1 FROM ledger_entry e
+                                   WHERE e.card_id = c.id AND e.tx_id >= c.ledger_xid AND e.tx_id < h.xmin)
+                     ORDER BY c.id
+                     LIMIT :limit
+                 )
+            UPDATE card c
+            SET balance = c.balance + COALESCE((SELECT SUM(e.amount) FROM ledger_entry e
+                                                WHERE e.card_id = c.id AND e.tx_id >= c.ledger_xid AND e.tx_id < h.xmin), 0),
+                ledger_xid = h.xmin
+            FROM h, batch
+            WHERE c.id = batch.id AND c.ledger_xid < h.xmin
+            """)
+    int rollUp(@Param("limit") int limit);
+}
@@ -0,0 +1,45 @@
+package ru.bank.cards.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.bank.cards.entity.TransferIdempotency;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Ключи идемпотентности переводов.
+ */
+public interface TransferIdempotencyRepository extends JpaRepository<TransferIdempotency, UUID> {
+
+    Optional<TransferIdempotency> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    /**
+     * Занимает ключ. Если ключ занят незавершённой транзакцией, вставка ждёт её окончания.
+     * Возвращает 0, если ключ уже занят закоммиченным запросом.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO transfer_idempotency (id, user_id, idempotency_key, request_hash, created_at)
+            VALUES (:id, :userId, :key, :hash, now())
+            ON CONFLICT (user_id, idempotency_key) DO NOTHING
+            """)
+    int claim(@Param("id") UUID id, @Param("userId") UUID userId, @Param("key") String key, @Param("hash") String hash);
+
+    @Modifying
+    @Query("update TransferIdempotency t set t.response = :response where t.userId = :userId and t.idempotencyKey = :key")
+    int complete(@Param("userId") UUID userId, @Param("key") String key, @Param("response") String response);
+
+    /**
+     * Удаляет до {@code limit} ключей, созданных раньше {@code before}.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            DELETE FROM transfer_idempotency
+            WHERE id IN (SELECT id FROM transfer_idempotency WHERE created_at < :before LIMIT :limit)
+            """)
+    int deleteExpired(@Param("before") Instant before, @Param("limit") int limit);
+}
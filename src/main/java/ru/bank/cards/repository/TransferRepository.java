@@ -1,12 +1,46 @@
 package ru.bank.cards.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import ru.bank.cards.dto.TransferExportRow;
 import ru.bank.cards.entity.Transfer;
 
+import java.time.Instant;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * Репозиторий переводов.
  */
 public interface TransferRepository extends JpaRepository<Transfer, UUID> {
+
+    /**
+     * История переводов пользователя, новые первыми (переводы идут только между картами одного владельца).
+     * Страница читается по индексу {@code idx_transfer_from_card_created_id} каждой карты владельца.
+     */
+    @EntityGraph(attributePaths = {"fromCard", "toCard"})
+    Window<Transfer> findByFromCard_Owner_IdOrderByCreatedAtDescIdDesc(UUID ownerId, ScrollPosition position, Limit limit);
+
+    /**
+     * Переводы за период для выгрузки. Строки читаются курсором PostgreSQL порциями по fetch size
+     * (только внутри транзакции), проекция не попадает в persistence context; поток нужно закрыть.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            select new ru.bank.cards.dto.TransferExportRow(
+                t.id, t.createdAt, f.id, f.cardNumber, d.id, d.cardNumber, t.amount, t.status)
+            from Transfer t join t.fromCard f join t.toCard d
+            where t.createdAt >= :from and t.createdAt < :to
+            order by t.createdAt, t.id
+            """)
+    Stream<TransferExportRow> streamForExport(@Param("from") Instant from, @Param("to") Instant to);
 }
@@ -1,34 +1,57 @@
 package ru.bank.cards.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Фильтр, проверяющий JWT в каждом запросе и устанавливающий аутентификацию пользователя.
+ * <p>
+ * Токен разбирается один раз. По умолчанию пользователь загружается через {@link UserDetailsCache},
+ * который сбрасывается при изменении или удалении пользователя, поэтому смена роли действует сразу.
+ * С {@code jwt.trust-claims} аутентификация строится из id и роли в токене без обращения к БД,
+ * и прежняя роль действует до истечения токена.
+ * <p>
+ * Разбор токена и поиск пользователя измеряются таймером {@code jwt.authentication} с тегом
+ * {@code result}: claims, lookup, invalid_token, unknown_user.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
+    private final boolean trustClaims;
+    private final MeterRegistry meterRegistry;
 
     public JwtAuthenticationFilter(JwtService jwtService,
-                                   @Qualifier("customUserDetailsService") UserDetailsService userDetailsService) {
+                                   @Qualifier("customUserDetailsService") UserDetailsService userDetailsService,
+                                   UserDetailsCache userDetailsCache,
+                                   @Value("${jwt.trust-claims:false}") boolean trustClaims,
+                                   MeterRegistry meterRegistry) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
+        this.trustClaims = trustClaims;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -43,24 +66,48 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        final String jwt = authHeader.substring(7);
-        final String userEmail = jwtService.extractUsername(jwt);
-
-        if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
-
-            if (jwtService.isTokenValid(jwt, userDetails.getUsername())) {
-                UsernamePasswordAuthenticationToken authToken =
-                        new UsernamePasswordAuthenticationToken(
-                                userDetails,
-                                null,
-                                userDetails.getAuthorities()
-                        );
-                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            String result = "invalid_token";
+            Optional<ParsedJwt> token = jwtService.parse(authHeader.substring(7));
+            if (token.isPresent()) {
+                boolean fromClaims = trustClaims && token.get().hasIdentity();
+                UserDetails userDetails = resolveUser(token.get());
+                result = userDetails == null ? "unknown_user" : fromClaims ? "claims" : "lookup";
+                if (userDetails != null) {
+                    UsernamePasswordAuthenticationToken authToken =
+                            new UsernamePasswordAuthenticationToken(
+                                    userDetails,
+                                    null,
+                                    userDetails.getAuthorities()
+                            );
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                }
             }
+            sample.stop(Timer.builder("jwt.authentication")
+                    .tag("result", result)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
         }
 
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Пользователь из claims токена или из кэша; null, если пользователь удалён.
+     */
+    private UserDetails resolveUser(ParsedJwt token) {
+        if (trustClaims && token.hasIdentity()) {
+            return User.withUsername(token.email())
+                    .password("")
+                    .roles(token.role().name())
+                    .build();
+        }
+        try {
+            return userDetailsCache.get(token.email(), userDetailsService::loadUserByUsername);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
 }
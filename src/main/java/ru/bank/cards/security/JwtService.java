@@ -1,30 +1,72 @@
 package ru.bank.cards.security;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import ru.bank.cards.entity.Role;
+import ru.bank.cards.entity.User;
 
 import java.security.Key;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.*;
 
 /**
  * Сервис для генерации и проверки JWT.
+ * <p>
+ * Ключи и парсер создаются один раз при старте. Токен подписывается активным ключом,
+ * id которого пишется в заголовок {@code kid}; проверка принимает любой ключ из набора,
+ * что позволяет менять ключ без разлогина пользователей:
+ * <pre>
+ * jwt.secret: &lt;новый ключ&gt;
+ * jwt.active-kid: 2025-02
+ * jwt.previous-keys: default=&lt;старый ключ&gt;
+ * </pre>
+ * Токены без {@code kid} (выпущенные до ротации) проверяются ключом {@value #DEFAULT_KID}.
  */
 @Service
 public class JwtService {
 
-    @Value("${jwt.secret}")
-    private String secretKey;
+    static final String DEFAULT_KID = "default";
+    static final String CLAIM_USER_ID = "uid";
+    static final String CLAIM_ROLE = "role";
 
-    @Value("${jwt.expiration-ms:86400000}")
-    private long jwtExpirationMs;
+    private final String activeKid;
+    private final Key signingKey;
+    private final Map<String, Key> verificationKeys;
+    private final JwtParser parser;
+    private final long jwtExpirationMs;
+
+    public JwtService(@Value("${jwt.secret}") String secretKey,
+                      @Value("${jwt.active-kid:" + DEFAULT_KID + "}") String activeKid,
+                      @Value("${jwt.previous-keys:}") String previousKeys,
+                      @Value("${jwt.expiration-ms:86400000}") long jwtExpirationMs) {
+        this.activeKid = activeKid;
+        this.signingKey = hmacKey(secretKey);
+        Map<String, Key> keys = new HashMap<>(parseKeys(previousKeys));
+        keys.put(activeKid, signingKey);
+        this.verificationKeys = Map.copyOf(keys);
+        this.parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        return keyFor(header.getKeyId());
+                    }
+                })
+                .build();
+        this.jwtExpirationMs = jwtExpirationMs;
+    }
+
+    /**
+     * Генерация токена с email, id и ролью пользователя.
+     */
+    public String generateToken(User user) {
+        Map<String, Object> claims = new HashMap<>();
+        if (user.getId() != null) claims.put(CLAIM_USER_ID, user.getId().toString());
+        if (user.getRole() != null) claims.put(CLAIM_ROLE, user.getRole().name());
+        return generateToken(claims, user.getEmail());
+    }
 
     /**
      * Генерация токена с email
@@ -34,47 +76,68 @@ public class JwtService {
     }
 
     public String generateToken(Map<String, Object> extraClaims, String email) {
+        long now = System.currentTimeMillis();
         return Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, activeKid)
                 .setClaims(extraClaims)
                 .setSubject(email)
-                .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .setIssuedAt(new Date(now))
+                .setExpiration(new Date(now + jwtExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
-    }
-
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    /**
+     * Проверяет подпись и срок действия и разбирает токен за один проход.
+     * Пустой результат — токен недействителен.
+     */
+    public Optional<ParsedJwt> parse(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            if (claims.getSubject() == null) return Optional.empty();
+            return Optional.of(new ParsedJwt(
+                    claims.getSubject(),
+                    uuidClaim(claims.get(CLAIM_USER_ID, String.class)),
+                    roleClaim(claims.get(CLAIM_ROLE, String.class)),
+                    claims.getExpiration() == null ? null : claims.getExpiration().toInstant()));
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private Key keyFor(String kid) {
+        Key key = verificationKeys.get(kid == null ? DEFAULT_KID : kid);
+        if (key == null) {
+            throw new SignatureException("Неизвестный ключ подписи: " + kid);
+        }
+        return key;
     }
 
-    public boolean isTokenValid(String token, String email) {
-        final String username = extractUsername(token);
-        return (username.equals(email)) && !isTokenExpired(token);
+    /**
+     * Разбирает список ключей вида {@code kid=base64,kid=base64}.
+     */
+    private static Map<String, Key> parseKeys(String value) {
+        Map<String, Key> keys = new HashMap<>();
+        if (value == null || value.isBlank()) return keys;
+        for (String entry : value.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalStateException("Некорректный элемент jwt.previous-keys, ожидается kid=ключ: " + entry.trim());
+            }
+            keys.put(entry.substring(0, eq).trim(), hmacKey(entry.substring(eq + 1).trim()));
+        }
+        return keys;
     }
 
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private static Key hmacKey(String base64) {
+        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(base64));
     }
 
-    private Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    private static UUID uuidClaim(String value) {
+        return value == null ? null : UUID.fromString(value);
     }
 
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private static Role roleClaim(String value) {
+        return value == null ? null : Role.valueOf(value);
     }
 }
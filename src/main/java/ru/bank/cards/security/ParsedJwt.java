@@ -0,0 +1,24 @@
+package ru.bank.cards.security;
+
+import ru.bank.cards.entity.Role;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Результат однократного разбора проверенного JWT.
+ *
+ * @param email     subject токена
+ * @param userId    claim {@code uid}, null для токенов старого формата
+ * @param role      claim {@code role}, null для токенов старого формата
+ * @param expiresAt срок действия
+ */
+public record ParsedJwt(String email, UUID userId, Role role, Instant expiresAt) {
+
+    /**
+     * Токен содержит всё необходимое для аутентификации без обращения к БД.
+     */
+    public boolean hasIdentity() {
+        return userId != null && role != null;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.bank.cards.security;
+
+/**
+ * Пул хэширования паролей и его очередь заполнены; запрос стоит повторить позже (503).
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.bank.cards.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.NonNull;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import ru.bank.cards.exception.ApiError;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов корзинами токенов ({@link RateLimiter}). Стоит в цепочке безопасности
+ * сразу после {@link JwtAuthenticationFilter}, поэтому корзины правил {@code key-by: USER} различаются
+ * пользователем из токена; анонимные запросы и правила {@code key-by: IP} — адресом клиента.
+ * <p>
+ * Превышение — 429 с {@code Retry-After} в секундах; отказы считаются в {@code http.rate_limited{rule}}.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter limiter;
+    private final ObjectMapper mapper;
+    private final Counter[] rejected;
+
+    public RateLimitFilter(RateLimiter limiter, ObjectMapper mapper, MeterRegistry meterRegistry) {
+        this.limiter = limiter;
+        this.mapper = mapper;
+        this.rejected = limiter.rules().stream()
+                .map(rule -> Counter.builder("http.rate_limited").tag("rule", rule.name()).register(meterRegistry))
+                .toArray(Counter[]::new);
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        RateLimiter.Rule rule = limiter.match(path);
+        if (rule == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long waitNanos = limiter.tryAcquire(rule, subject(rule, request));
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        rejected[rule.index()].increment();
+        long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        mapper.writeValue(response.getOutputStream(), ApiError.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error(HttpStatus.TOO_MANY_REQUESTS.getReasonPhrase())
+                .message("Слишком много запросов, повторите через " + retryAfter + " с")
+                .path(path)
+                .build());
+    }
+
+    private static String subject(RateLimiter.Rule rule, HttpServletRequest request) {
+        if (rule.keyBy() == RateLimitProperties.KeyBy.USER) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                return "user:" + auth.getName();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.bank.cards.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Настройки ограничения частоты запросов ({@code rate-limit.*}).
+ *
+ * @param enabled  выключенный лимитер пропускает все запросы
+ * @param maxKeys  сколько корзин (пара правило + пользователь/IP) держится в памяти
+ * @param rules    правила по порядку; к запросу применяется первое совпавшее по пути
+ */
+@ConfigurationProperties("rate-limit")
+public record RateLimitProperties(@DefaultValue("true") boolean enabled,
+                                  @DefaultValue("100000") long maxKeys,
+                                  @DefaultValue List<Rule> rules) {
+
+    /**
+     * Чем различаются корзины правила.
+     */
+    public enum KeyBy {
+        /**
+         * Аутентифицированный пользователь; для анонимных запросов — IP.
+         */
+        USER,
+        IP
+    }
+
+    /**
+     * Корзина на {@code capacity} запросов подряд, пополняется на {@code refillPerSecond} в секунду.
+     *
+     * @param pattern шаблон пути в синтаксисе {@code PathPattern}, например {@code /auth/**}
+     */
+    public record Rule(String name,
+                       String pattern,
+                       @DefaultValue("USER") KeyBy keyBy,
+                       long capacity,
+                       double refillPerSecond) {
+    }
+}
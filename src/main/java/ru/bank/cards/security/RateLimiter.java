@@ -0,0 +1,109 @@
+package ru.bank.cards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.http.server.PathContainer;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Корзины токенов по правилам {@link RateLimitProperties}.
+ * <p>
+ * Корзина хранит одно число — теоретическое время следующего запроса (GCRA, эквивалент корзины
+ * токенов) — и списывает токен одним CAS, без блокировок. Корзины лежат в ограниченном кэше
+ * и удаляются после простоя, за который успели бы пополниться полностью: новая корзина тоже полная,
+ * поэтому удаление не меняет поведения.
+ */
+public class RateLimiter {
+
+    /**
+     * Правило с заранее посчитанными интервалами в наносекундах.
+     */
+    public record Rule(int index, String name, PathPattern pattern, RateLimitProperties.KeyBy keyBy,
+                       long intervalNanos, long burstNanos) {
+    }
+
+    private record BucketKey(int rule, String subject) {
+    }
+
+    private static final class Bucket {
+        private final AtomicLong nextFreeNanos;
+
+        Bucket(long now) {
+            this.nextFreeNanos = new AtomicLong(now);
+        }
+
+        long tryAcquire(long now, long interval, long burst) {
+            while (true) {
+                long current = nextFreeNanos.get();
+                long next = Math.max(current, now) + interval;
+                long wait = next - now - burst;
+                if (wait > 0) return wait;
+                if (nextFreeNanos.compareAndSet(current, next)) return 0;
+            }
+        }
+    }
+
+    private final List<Rule> rules;
+    private final Cache<BucketKey, Bucket> buckets;
+    private final LongSupplier clock;
+
+    public RateLimiter(RateLimitProperties properties) {
+        this(properties, System::nanoTime);
+    }
+
+    RateLimiter(RateLimitProperties properties, LongSupplier clock) {
+        PathPatternParser parser = new PathPatternParser();
+        List<Rule> compiled = new ArrayList<>();
+        long idleNanos = Duration.ofSeconds(1).toNanos();
+        if (properties.enabled()) {
+            for (RateLimitProperties.Rule r : properties.rules()) {
+                if (r.capacity() < 1 || r.refillPerSecond() <= 0) {
+                    throw new IllegalStateException("rate-limit." + r.name() + ": capacity и refill-per-second должны быть положительными");
+                }
+                long interval = Math.max(1, Math.round(1_000_000_000d / r.refillPerSecond()));
+                long burst = interval * r.capacity();
+                compiled.add(new Rule(compiled.size(), r.name(), parser.parse(r.pattern()), r.keyBy(), interval, burst));
+                idleNanos = Math.max(idleNanos, burst);
+            }
+        }
+        this.rules = List.copyOf(compiled);
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, properties.maxKeys()))
+                .expireAfterAccess(Duration.ofNanos(idleNanos))
+                .build();
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Первое правило, шаблон которого совпал с путём; null — запрос не ограничивается.
+     */
+    public Rule match(String path) {
+        if (rules.isEmpty()) return null;
+        PathContainer container = PathContainer.parsePath(path);
+        for (Rule rule : rules) {
+            if (rule.pattern().matches(container)) return rule;
+        }
+        return null;
+    }
+
+    /**
+     * Списывает токен из корзины {@code subject} по правилу. Возвращает 0, если запрос пропущен,
+     * иначе — через сколько наносекунд появится токен.
+     */
+    public long tryAcquire(Rule rule, String subject) {
+        long now = clock.getAsLong();
+        Bucket bucket = buckets.get(new BucketKey(rule.index(), subject), key -> new Bucket(now));
+        return bucket.tryAcquire(now, rule.intervalNanos(), rule.burstNanos());
+    }
+}
@@ -0,0 +1,27 @@
+package ru.bank.cards.security;
+
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+import ru.bank.cards.entity.User;
+
+/**
+ * JPA-слушатель {@link User}: сбрасывает запись в {@link UserDetailsCache} при смене роли,
+ * пароля, email или удалении пользователя. Создаётся Spring'ом через SpringBeanContainer Hibernate.
+ */
+@Component
+public class UserCacheInvalidator {
+
+    private final UserDetailsCache cache;
+
+    public UserCacheInvalidator(UserDetailsCache cache) {
+        this.cache = cache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void evict(User user) {
+        cache.evict(user.getEmail());
+        cache.evict(user.getLoadedEmail());
+    }
+}
@@ -0,0 +1,43 @@
+package ru.bank.cards.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш {@link UserDetails} по email.
+ * Сбрасывается при изменении или удалении пользователя ({@link UserCacheInvalidator}).
+ */
+@Component
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    public UserDetailsCache(@Value("${jwt.user-cache.max-size:10000}") long maxSize,
+                            @Value("${jwt.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(0, ttlSeconds)))
+                .build();
+    }
+
+    /**
+     * Возвращает закэшированного пользователя или загружает его; ошибки загрузки не кэшируются.
+     */
+    public UserDetails get(String email, Function<String, UserDetails> loader) {
+        return cache.get(email, loader);
+    }
+
+    public void evict(String email) {
+        if (email != null) cache.invalidate(email);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,53 @@
+package ru.bank.cards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.repository.CardRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Автоподтверждение запросов на блокировку: запросы старше {@code card.block.auto-approve.min-age-seconds},
+ * которые администратор не рассмотрел, подтверждаются порциями в отдельных транзакциях.
+ * Выключено по умолчанию.
+ */
+@Component
+@ConditionalOnProperty(name = "card.block.auto-approve.enabled", havingValue = "true")
+public class BlockAutoApproveJob {
+
+    private final CardRepository cards;
+    private final TransactionTemplate tx;
+    private final Duration minAge;
+    private final int chunkSize;
+
+    public BlockAutoApproveJob(CardRepository cards,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${card.block.auto-approve.min-age-seconds:300}") long minAgeSeconds,
+                               @Value("${card.block.auto-approve.chunk-size:1000}") int chunkSize) {
+        this.cards = cards;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.minAge = Duration.ofSeconds(Math.max(0, minAgeSeconds));
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Возвращает число заблокированных карт.
+     */
+    @Scheduled(fixedDelayString = "${card.block.auto-approve.interval-ms:60000}",
+            initialDelayString = "${card.block.auto-approve.interval-ms:60000}")
+    public int approve() {
+        Instant before = Instant.now().minus(minAge);
+        int total = 0;
+        int blocked;
+        do {
+            blocked = tx.execute(status -> cards.approveBlocksRequestedBefore(before, chunkSize));
+            total += blocked;
+        } while (blocked == chunkSize);
+        return total;
+    }
+}
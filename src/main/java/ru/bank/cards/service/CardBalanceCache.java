@@ -0,0 +1,78 @@
+package ru.bank.cards.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.bank.cards.dto.BalanceResponse;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Ограниченный по размеру и времени жизни кэш баланса по id карты. Запись сбрасывается после
+ * коммита перевода или изменения карты ({@link #evictAfterCommit}); загрузка и сброс одного ключа
+ * в Caffeine не пересекаются, поэтому значение, прочитанное до коммита, не переживает сброс.
+ * Попадания и промахи — в метриках {@code cache.gets{cache=card.balance}}.
+ * <p>
+ * Кэш и сброс локальны для экземпляра приложения: после перевода через другой экземпляр
+ * здесь баланс может быть старым до истечения {@code card.balance-cache.ttl-seconds}.
+ */
+@Component
+public class CardBalanceCache {
+
+    /**
+     * Баланс и владелец карты: владение проверяется и при попадании в кэш.
+     */
+    public record Entry(UUID ownerId, BalanceResponse balance) {
+    }
+
+    private final Cache<UUID, Entry> cache;
+
+    public CardBalanceCache(MeterRegistry meterRegistry,
+                            @Value("${card.balance-cache.max-size:100000}") long maxSize,
+                            @Value("${card.balance-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(0, ttlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "card.balance");
+    }
+
+    /**
+     * Возвращает закэшированный баланс или загружает его; ошибки загрузки не кэшируются.
+     */
+    public Entry get(UUID cardId, Function<UUID, Entry> loader) {
+        return cache.get(cardId, loader);
+    }
+
+    /**
+     * Сбрасывает записи карт после коммита текущей транзакции (сразу, если транзакции нет).
+     */
+    public void evictAfterCommit(Collection<UUID> cardIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidateAll(cardIds);
+            return;
+        }
+        Set<UUID> ids = Set.copyOf(cardIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidateAll(ids);
+            }
+        });
+    }
+
+    public void evictAfterCommit(UUID cardId) {
+        evictAfterCommit(List.of(cardId));
+    }
+}
@@ -0,0 +1,64 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.repository.CardRepository;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Перевод просроченных карт в статус EXPIRED порциями по {@code card.expiry.chunk-size},
+ * каждая порция — отдельная транзакция, поэтому прерванный запуск продолжается со следующей.
+ * Число обработанных карт растёт в счётчике {@code card.expiry.expired} по мере коммита порций.
+ */
+@Component
+@ConditionalOnProperty(name = "card.expiry.enabled", havingValue = "true", matchIfMissing = true)
+public class CardExpiryJob {
+
+    private final CardRepository cards;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final Clock clock;
+    private final Counter expired;
+
+    public CardExpiryJob(CardRepository cards,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${card.expiry.chunk-size:1000}") int chunkSize) {
+        this(cards, transactionManager, meterRegistry, chunkSize, Clock.systemDefaultZone());
+    }
+
+    CardExpiryJob(CardRepository cards, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                  int chunkSize, Clock clock) {
+        this.cards = cards;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.clock = clock;
+        this.expired = Counter.builder("card.expiry.expired")
+                .description("Карты, переведённые в EXPIRED")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Возвращает число карт, переведённых в EXPIRED.
+     */
+    @Scheduled(cron = "${card.expiry.cron:0 5 0 * * *}")
+    public int expire() {
+        LocalDate today = LocalDate.now(clock);
+        int total = 0;
+        int updated;
+        do {
+            updated = tx.execute(status -> cards.expireBefore(today, chunkSize));
+            expired.increment(updated);
+            total += updated;
+        } while (updated == chunkSize);
+        return total;
+    }
+}
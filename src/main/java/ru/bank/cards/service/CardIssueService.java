@@ -0,0 +1,230 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.dto.BulkIssueResponse;
+import ru.bank.cards.dto.CreateCardRequest;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.repository.CardBatchRepository;
+import ru.bank.cards.repository.CardBatchRepository.NewCard;
+import ru.bank.cards.repository.UserRepository;
+import ru.bank.cards.util.MaskingUtil;
+import ru.bank.cards.util.UuidV7;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.bank.cards.service.rules.CardRules.requireFuture;
+
+/**
+ * Пакетный выпуск карт из потока NDJSON или CSV.
+ * <p>
+ * Строки читаются и проверяются по одной (те же правила, что у {@link CardService#create}),
+ * корректные копятся в пачки по {@code card.bulk-issue.chunk-size} и вставляются одним
+ * оператором в отдельной транзакции на пачку. Уже выпущенные номера пропускаются с ошибкой
+ * строки, поэтому файл после сбоя можно отправить повторно целиком.
+ * <p>
+ * Ошибка БД при вставке пачки не прерывает запрос исключением: чтение останавливается, а в ответе
+ * остаются закоммиченные карты и диапазон строк несостоявшейся пачки ({@link BulkIssueResponse#getFailedChunk()}).
+ */
+@Service
+public class CardIssueService {
+
+    /**
+     * Формат входного потока.
+     */
+    public enum ImportFormat {
+        /**
+         * JSON-объект {@link CreateCardRequest} на строку.
+         */
+        NDJSON,
+        /**
+         * Заголовок {@value #CSV_HEADER}, затем строки в том же порядке колонок.
+         */
+        CSV
+    }
+
+    static final String CSV_HEADER = "ownerId,number,expiresAt,balance";
+
+    private record Row(long line, NewCard card) {
+    }
+
+    /**
+     * Итог закоммиченной пачки; в отчёт переносится только после коммита.
+     */
+    private record ChunkResult(int created, List<BulkIssueResponse.RowError> rejected) {
+    }
+
+    private final CardBatchRepository batch;
+    private final UserRepository users;
+    private final Validator validator;
+    private final ObjectReader requestReader;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    public CardIssueService(CardBatchRepository batch,
+                            UserRepository users,
+                            Validator validator,
+                            ObjectMapper mapper,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${card.bulk-issue.chunk-size:5000}") int chunkSize,
+                            @Value("${card.bulk-issue.max-errors:1000}") int maxErrors) {
+        this.batch = batch;
+        this.users = users;
+        this.validator = validator;
+        this.requestReader = mapper.readerFor(CreateCardRequest.class);
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxErrors = Math.max(0, maxErrors);
+    }
+
+    /**
+     * Выпускает карты из потока. Пачки, вставленные до ошибки БД, остаются закоммиченными
+     * и учтены в ответе вместе с диапазоном строк сбойной пачки.
+     */
+    public BulkIssueResponse issue(InputStream in, ImportFormat format) throws IOException {
+        BulkIssueResponse report = new BulkIssueResponse();
+        Set<UUID> knownOwners = new HashSet<>();
+        List<Row> pending = new ArrayList<>(chunkSize);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+        long line = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (format == ImportFormat.CSV && line == 1) {
+                if (!text.replace("\uFEFF", "").strip().equalsIgnoreCase(CSV_HEADER)) {
+                    throw new IllegalArgumentException("Первая строка CSV должна быть заголовком " + CSV_HEADER);
+                }
+                continue;
+            }
+            if (text.isBlank()) continue;
+            try {
+                CreateCardRequest req = format == ImportFormat.CSV ? parseCsv(text) : parseJson(text);
+                pending.add(new Row(line, validate(req)));
+            } catch (IllegalArgumentException | EntityException e) {
+                fail(report, line, e.getMessage());
+            }
+            if (pending.size() == chunkSize && !flush(pending, knownOwners, report)) {
+                return report;
+            }
+        }
+        flush(pending, knownOwners, report);
+        return report;
+    }
+
+    /**
+     * Вставляет пачку в своей транзакции: владельцы проверяются одним запросом, дубликаты номеров
+     * отсекаются ON CONFLICT без отката пачки. Возвращает {@code false}, если пачка откатилась
+     * из-за ошибки БД; тогда она записана в {@code failedChunk}.
+     */
+    private boolean flush(List<Row> pending, Set<UUID> knownOwners, BulkIssueResponse report) {
+        if (pending.isEmpty()) return true;
+        ChunkResult result;
+        try {
+            result = tx.execute(status -> insert(pending, knownOwners));
+        } catch (DataAccessException | TransactionException e) {
+            report.setFailedChunk(new BulkIssueResponse.ChunkFailure(pending.get(0).line(),
+                    pending.get(pending.size() - 1).line(),
+                    "Пачка не вставлена: " + NestedExceptionUtils.getMostSpecificCause(e).getMessage()));
+            pending.clear();
+            return false;
+        }
+        report.setCreated(report.getCreated() + result.created());
+        result.rejected().forEach(e -> fail(report, e.getLine(), e.getMessage()));
+        pending.clear();
+        return true;
+    }
+
+    private ChunkResult insert(List<Row> pending, Set<UUID> knownOwners) {
+        Set<UUID> unknown = pending.stream().map(r -> r.card().ownerId())
+                .filter(id -> !knownOwners.contains(id)).collect(Collectors.toSet());
+        if (!unknown.isEmpty()) knownOwners.addAll(users.findExistingIds(unknown));
+
+        List<BulkIssueResponse.RowError> rejected = new ArrayList<>();
+        List<Row> rows = new ArrayList<>(pending.size());
+        for (Row row : pending) {
+            if (knownOwners.contains(row.card().ownerId())) rows.add(row);
+            else rejected.add(new BulkIssueResponse.RowError(row.line(), "Пользователь с ID: " + row.card().ownerId() + " не найден"));
+        }
+        Set<String> inserted = batch.insertSkippingDuplicates(rows.stream().map(Row::card).toList());
+        int created = 0;
+        for (Row row : rows) {
+            if (inserted.remove(row.card().number())) created++;
+            else rejected.add(new BulkIssueResponse.RowError(row.line(),
+                    "Карта с номером " + MaskingUtil.maskPan(row.card().number()) + " уже существует"));
+        }
+        return new ChunkResult(created, rejected);
+    }
+
+    private NewCard validate(CreateCardRequest req) {
+        Set<ConstraintViolation<CreateCardRequest>> violations = validator.validate(req);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        requireFuture(req.getExpiresAt(), "Срок действия");
+        BigDecimal balance = req.getBalance() == null ? BigDecimal.ZERO : req.getBalance();
+        return new NewCard(UuidV7.next(), req.getNumber(), MaskingUtil.last4(req.getNumber()),
+                req.getOwnerId(), req.getExpiresAt(), balance);
+    }
+
+    private CreateCardRequest parseJson(String text) {
+        try {
+            return requestReader.readValue(text);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Некорректный JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static CreateCardRequest parseCsv(String text) {
+        String[] cols = text.split(",", -1);
+        if (cols.length < 3 || cols.length > 4) {
+            throw new IllegalArgumentException("Ожидается " + CSV_HEADER);
+        }
+        return CreateCardRequest.builder()
+                .ownerId(column(cols, 0, UUID::fromString, "ownerId"))
+                .number(cols[1].strip())
+                .expiresAt(column(cols, 2, LocalDate::parse, "expiresAt"))
+                .balance(column(cols, 3, BigDecimal::new, "balance"))
+                .build();
+    }
+
+    private static <T> T column(String[] cols, int index, Function<String, T> parser, String name) {
+        if (index >= cols.length || cols[index].isBlank()) return null;
+        String value = cols[index].strip();
+        try {
+            return parser.apply(value);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException(name + ": некорректное значение " + value);
+        }
+    }
+
+    private void fail(BulkIssueResponse report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new BulkIssueResponse.RowError(line, message));
+        }
+    }
+}
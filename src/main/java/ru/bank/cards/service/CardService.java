@@ -1,40 +1,56 @@
 package ru.bank.cards.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.persistence.EntityNotFoundException;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.bank.cards.dto.BalanceResponse;
+import ru.bank.cards.dto.BulkBlockResponse;
 import ru.bank.cards.dto.CardResponse;
 import ru.bank.cards.dto.CreateCardRequest;
 import ru.bank.cards.dto.PageResponse;
+import ru.bank.cards.dto.SliceResponse;
 import ru.bank.cards.entity.Card;
 import ru.bank.cards.entity.CardStatus;
 import ru.bank.cards.entity.User;
 import ru.bank.cards.repository.CardRepository;
 import ru.bank.cards.repository.UserRepository;
+import ru.bank.cards.util.CursorUtil;
+import ru.bank.cards.util.ETagUtil;
 import ru.bank.cards.util.MaskingUtil;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static ru.bank.cards.service.rules.CardRules.requireFuture;
 
 /**
- * Бизнес-логика работы с картами.
+ * Бизнес-логика работы с картами. Каждый публичный метод измеряется таймером {@code card.service}
+ * (теги {@code method}, {@code exception}).
  */
 @Service
+@Timed(value = "card.service", histogram = true)
 public class CardService {
 
+    /**
+     * Нижняя граница курсора: PostgreSQL сравнивает uuid побайтно, нулевой меньше любого id карты.
+     */
+    private static final UUID MIN_ID = new UUID(0, 0);
+
     private final CardRepository cards;
     private final UserRepository users;
+    private final CardBalanceCache balanceCache;
 
-    public CardService(CardRepository cards, UserRepository users) {
+    public CardService(CardRepository cards, UserRepository users, CardBalanceCache balanceCache) {
         this.cards = cards;
         this.users = users;
+        this.balanceCache = balanceCache;
     }
 
     /**
@@ -46,12 +62,14 @@ public class CardService {
                 .orElseThrow(() -> new EntityNotFoundException("Пользователь с ID: " + req.getOwnerId() + " не найден"));
         requireFuture(req.getExpiresAt(), "Срок действия");
 
+        BigDecimal balance = req.getBalance() == null ? BigDecimal.ZERO : req.getBalance();
         Card c = Card.builder()
                 .cardNumber(req.getNumber())
                 .owner(owner)
                 .expiresAt(req.getExpiresAt())
                 .status(CardStatus.ACTIVE)
-                .balance(req.getBalance() == null ? BigDecimal.ZERO : req.getBalance())
+                .snapshotBalance(balance)
+                .balance(balance)
                 .build();
 
         Card saved = cards.save(c);
@@ -65,9 +83,22 @@ public class CardService {
     public CardResponse updateStatus(UUID cardId, CardStatus status) {
         Card card = cards.findById(cardId).orElseThrow(() -> new EntityNotFoundException("Карта с ID : " + cardId + " не найдена"));
         card.setStatus(status);
+        balanceCache.evictAfterCommit(cardId);
         return toResponse(card);
     }
 
+    /**
+     * Подтверждение запросов на блокировку одним UPDATE: выбранных карт или, если список пуст, всех
+     * ожидающих. Возвращает число заблокированных карт.
+     */
+    @Transactional
+    public BulkBlockResponse approveBlocks(List<UUID> cardIds) {
+        int blocked = cardIds == null || cardIds.isEmpty()
+                ? cards.approveAllBlocks()
+                : cards.approveBlocks(Set.copyOf(cardIds));
+        return new BulkBlockResponse(blocked);
+    }
+
     /**
      * Удаление карты.
      */
@@ -75,19 +106,29 @@ public class CardService {
     public void delete(UUID cardId) {
         if (!cards.existsById(cardId)) throw new EntityNotFoundException("Карта с ID : " + cardId + " не найдена");
         cards.deleteById(cardId);
+        balanceCache.evictAfterCommit(cardId);
     }
 
     /**
-     * Список карт пользователя с поиском по последним цифрам.
+     * Список карт пользователя с поиском по последним цифрам (запрос до 6 символов, нецифровые
+     * символы отбрасываются). Поиск идёт по индексу (owner_id, pan_last4); 5–6 цифр дополнительно
+     * сверяются с концом номера. Запрос без цифр ничего не находит.
      */
     @Transactional(readOnly = true)
     public PageResponse<CardResponse> getUserCards(UUID userId, String search, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
         Page<Card> result;
-        if (search != null && !search.isBlank() && search.trim().length() <= 6) {
-            result = cards.findByOwner_IdAndCardNumberEndingWith(userId, search.replace(" ", ""), pageable);
-        } else {
+        String digits = searchDigits(search);
+        if (digits == null) {
             result = cards.findByOwner_Id(userId, pageable);
+        } else if (digits.isEmpty()) {
+            result = Page.empty(pageable);
+        } else if (digits.length() < 4) {
+            result = cards.findByOwner_IdAndPanLast4EndingWith(userId, digits, pageable);
+        } else if (digits.length() == 4) {
+            result = cards.findByOwner_IdAndPanLast4(userId, digits, pageable);
+        } else {
+            result = cards.findByOwnerAndNumberSuffix(userId, MaskingUtil.last4(digits), "%" + digits, pageable);
         }
         List<CardResponse> list = result.stream().map(this::toResponse).toList();
         return PageResponse.<CardResponse>builder()
@@ -95,28 +136,81 @@ public class CardService {
                 .totalElements(result.getTotalElements()).totalPages(result.getTotalPages()).build();
     }
 
+    /**
+     * Список карт пользователя с курсорной пагинацией (поиск — как в {@link #getUserCards}).
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<CardResponse> scrollUserCards(UUID userId, String search, String after, int size) {
+        ScrollPosition position = afterId(after);
+        Limit limit = Limit.of(size);
+        String digits = searchDigits(search);
+        Window<Card> window;
+        if (digits == null) {
+            window = cards.findByOwner_IdOrderByIdAsc(userId, position, limit);
+        } else if (digits.isEmpty()) {
+            window = Window.from(List.of(), ScrollPosition::offset, false);
+        } else if (digits.length() < 4) {
+            window = cards.findByOwner_IdAndPanLast4EndingWithOrderByIdAsc(userId, digits, position, limit);
+        } else if (digits.length() == 4) {
+            window = cards.findByOwner_IdAndPanLast4OrderByIdAsc(userId, digits, position, limit);
+        } else {
+            UUID afterId = after == null || after.isBlank() ? MIN_ID : CursorUtil.decodeId(after);
+            List<Card> found = cards.findByOwnerAndNumberSuffixAfter(userId, MaskingUtil.last4(digits), "%" + digits,
+                    afterId, Limit.of(size + 1));
+            boolean hasNext = found.size() > size;
+            window = Window.from(hasNext ? found.subList(0, size) : found, ScrollPosition::offset, hasNext);
+        }
+        return toSlice(window, size);
+    }
+
+    /**
+     * Цифры поискового запроса; {@code null}, если поиска нет (пустой запрос или длиннее 6 символов).
+     */
+    private static String searchDigits(String search) {
+        if (search == null || search.isBlank() || search.trim().length() > 6) return null;
+        StringBuilder digits = new StringBuilder(6);
+        for (int i = 0; i < search.length(); i++) {
+            char ch = search.charAt(i);
+            if (ch >= '0' && ch <= '9') digits.append(ch);
+        }
+        return digits.toString();
+    }
+
     /**
      * Карта пользователя по id (с проверкой владения).
      */
     @Transactional(readOnly = true)
     public CardResponse getUserCard(UUID userId, UUID cardId) {
-        Card card = cards.findById(cardId).orElseThrow(() -> new EntityNotFoundException("Карта с ID : " + cardId + " не найдена"));
+        Card card = cards.findWithOwnerById(cardId).orElseThrow(() -> new EntityNotFoundException("Карта с ID : " + cardId + " не найдена"));
         if (!card.getOwner().getId().equals(userId))
             throw new EntityNotFoundException(("Карта с ID " + cardId + " не принадлежит пользователю с ID " + userId));
         return toResponse(card);
     }
 
     /**
-     * Баланс карты пользователя.
+     * ETag карты пользователя по её версии, балансу и имени владельца; пусто, если карты нет или она чужая.
      */
     @Transactional(readOnly = true)
+    public Optional<String> getUserCardETag(UUID userId, UUID cardId) {
+        return cards.findTagByIdAndOwnerId(cardId, userId)
+                .map(tag -> ETagUtil.card(cardId, tag.getVersion(), tag.getBalance(), tag.getOwnerName()));
+    }
+
+    /**
+     * Баланс карты пользователя: снимок плюс хвост журнала проводок (см. {@link Card#getBalance()}).
+     * Читается через {@link CardBalanceCache}, промах загружает карту в отдельной транзакции чтения
+     * на основной БД: значение с отстающей реплики осталось бы в кэше до конца TTL уже после сброса.
+     */
     public BalanceResponse getUserCardBalance(UUID userId, UUID cardId) {
-        Card card = cards.findById(cardId).orElseThrow(() -> new EntityNotFoundException("Карта с ID : " + cardId + " не найдена"));
-        if (!card.getOwner().getId().equals(userId))
+        CardBalanceCache.Entry entry = balanceCache.get(cardId, id -> ReadYourWrites.onPrimary(() -> {
+            Card card = cards.findById(id).orElseThrow(() -> new EntityNotFoundException("Карта с ID : " + id + " не найдена"));
+            return new CardBalanceCache.Entry(card.getOwner().getId(), BalanceResponse.builder().cardId(card.getId())
+                    .maskedNumber(MaskingUtil.maskPan(card.getCardNumber()))
+                    .balance(card.getBalance()).build());
+        }));
+        if (!entry.ownerId().equals(userId))
             throw new EntityNotFoundException(("Карта с ID " + cardId + " не принадлежит пользователю с ID " + userId));
-        return BalanceResponse.builder().cardId(card.getId())
-                .maskedNumber(MaskingUtil.maskPan(card.getCardNumber()))
-                .balance(card.getBalance()).build();
+        return entry.balance();
     }
 
     /**
@@ -136,6 +230,21 @@ public class CardService {
                 .totalElements(p.getTotalElements()).totalPages(p.getTotalPages()).build();
     }
 
+    /**
+     * Список всех карт (админ) с фильтрами и курсорной пагинацией: без OFFSET и count(*).
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<CardResponse> scrollAll(UUID ownerId, CardStatus status, String after, int size) {
+        ScrollPosition position = afterId(after);
+        Limit limit = Limit.of(size);
+        Window<Card> window;
+        if (status != null && ownerId != null) window = cards.findByOwner_IdAndStatusInOrderByIdAsc(ownerId, List.of(status), position, limit);
+        else if (status != null) window = cards.findByStatusInOrderByIdAsc(List.of(status), position, limit);
+        else if (ownerId != null) window = cards.findByOwner_IdOrderByIdAsc(ownerId, position, limit);
+        else window = cards.findAllByOrderByIdAsc(position, limit);
+        return toSlice(window, size);
+    }
+
     /**
      * Запрос на блокировку карты.
      */
@@ -153,11 +262,25 @@ public class CardService {
         }
 
         card.setStatus(CardStatus.PENDING_BLOCK);
+        card.setBlockRequestedAt(Instant.now());
         cards.save(card);
 
         return toResponse(card);
     }
 
+    private static ScrollPosition afterId(String after) {
+        return after == null || after.isBlank()
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(Map.of("id", CursorUtil.decodeId(after)));
+    }
+
+    private SliceResponse<CardResponse> toSlice(Window<Card> window, int size) {
+        List<CardResponse> list = window.stream().map(this::toResponse).toList();
+        String next = window.hasNext() && !list.isEmpty() ? CursorUtil.encode(list.get(list.size() - 1).getId()) : null;
+        return SliceResponse.<CardResponse>builder()
+                .content(list).size(size).hasNext(window.hasNext()).nextCursor(next).build();
+    }
+
     private CardResponse toResponse(Card c) {
         return CardResponse.builder()
                 .id(c.getId())
@@ -2,15 +2,17 @@ package ru.bank.cards.service;
 
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.bank.cards.entity.User;
 import ru.bank.cards.repository.UserRepository;
 
 @Service
 @Primary
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository users;
 
@@ -29,4 +31,19 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .roles(user.getRole().name())
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Сохраняет пароль, перехэшированный после входа с новой стоимостью BCrypt.
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = users.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("Пользователь не найден: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        users.save(entity);
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
+    }
+}
@@ -0,0 +1,45 @@
+package ru.bank.cards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.repository.LedgerEntryRepository;
+
+/**
+ * Периодическая свёртка журнала проводок в снимки балансов карт, чтобы чтение баланса
+ * суммировало только короткий хвост журнала. Каждая порция карт — отдельная короткая транзакция;
+ * параллельный запуск на нескольких экземплярах безопасен.
+ */
+@Component
+@ConditionalOnProperty(name = "ledger.rollup.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerRollupJob {
+
+    private final LedgerEntryRepository ledger;
+    private final TransactionTemplate tx;
+    private final int chunkSize;
+
+    public LedgerRollupJob(LedgerEntryRepository ledger,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${ledger.rollup.chunk-size:500}") int chunkSize) {
+        this.ledger = ledger;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Сворачивает журнал порциями, пока есть что сворачивать. Возвращает число обновлённых карт.
+     */
+    @Scheduled(fixedDelayString = "${ledger.rollup.interval-ms:60000}", initialDelayString = "${ledger.rollup.interval-ms:60000}")
+    public int rollUp() {
+        int total = 0;
+        int updated;
+        do {
+            updated = tx.execute(status -> ledger.rollUp(chunkSize));
+            total += updated;
+        } while (updated == chunkSize);
+        return total;
+    }
+}
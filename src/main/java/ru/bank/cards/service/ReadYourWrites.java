@@ -0,0 +1,74 @@
+package ru.bank.cards.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * «Читай свои записи» при чтении с реплики: в течение {@code app.datasource.replica.read-your-writes-ms}
+ * после изменения данных пользователем его чтения выполняются на основной БД, чтобы баланс
+ * сразу после перевода не был старым из-за отставания реплики.
+ * <p>
+ * Недавние записи помнит только этот экземпляр приложения.
+ */
+@Component
+public class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final Cache<UUID, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${app.datasource.replica.read-your-writes-ms:5000}") long windowMs,
+                          @Value("${app.datasource.replica.read-your-writes-max-users:100000}") long maxUsers) {
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxUsers))
+                .expireAfterWrite(Duration.ofMillis(Math.max(0, windowMs)))
+                .build();
+    }
+
+    /**
+     * Пользователь только что изменил данные.
+     */
+    public void written(UUID userId) {
+        recentWrites.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * Выполняет чтение на основной БД, если пользователь недавно изменял данные, иначе как обычно.
+     * Вызывается вне транзакции: соединение выбирается при первом запросе внутри неё.
+     */
+    public <T> T read(UUID userId, Supplier<T> reader) {
+        if (recentWrites.getIfPresent(userId) == null) {
+            return reader.get();
+        }
+        return onPrimary(reader);
+    }
+
+    /**
+     * Выполняет чтение на основной БД независимо от недавних записей. Как и {@link #read},
+     * вызывается вне транзакции.
+     */
+    public static <T> T onPrimary(Supplier<T> reader) {
+        if (Boolean.TRUE.equals(PRIMARY.get())) {
+            return reader.get();
+        }
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            return reader.get();
+        } finally {
+            PRIMARY.remove();
+        }
+    }
+
+    /**
+     * Текущий поток должен читать с основной БД.
+     */
+    public static boolean primaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY.get());
+    }
+}
@@ -0,0 +1,155 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.bank.cards.dto.SliceResponse;
+import ru.bank.cards.dto.TransferExportRow;
+import ru.bank.cards.dto.TransferResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.Transfer;
+import ru.bank.cards.repository.TransferRepository;
+import ru.bank.cards.util.CursorUtil;
+import ru.bank.cards.util.MaskingUtil;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * История и выгрузка переводов.
+ */
+@Service
+public class TransferHistoryService {
+
+    /**
+     * Формат выгрузки.
+     */
+    public enum ExportFormat {
+        /**
+         * JSON-объект на строку.
+         */
+        NDJSON,
+        CSV
+    }
+
+    private static final String CSV_HEADER = "id,createdAt,fromCardId,fromMaskedNumber,toCardId,toMaskedNumber,amount,status\n";
+
+    private final TransferRepository transfers;
+    private final ObjectWriter rowWriter;
+    private final ObjectMapper mapper;
+
+    public TransferHistoryService(TransferRepository transfers, ObjectMapper mapper) {
+        this.transfers = transfers;
+        this.mapper = mapper;
+        this.rowWriter = mapper.writerFor(TransferExportRow.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Переводы пользователя, новые первыми, с курсорной пагинацией по (created_at, id).
+     */
+    @Transactional(readOnly = true)
+    public SliceResponse<TransferResponse> history(UUID userId, String after, int size) {
+        ScrollPosition position;
+        if (after == null || after.isBlank()) {
+            position = ScrollPosition.keyset();
+        } else {
+            CursorUtil.TimeKey key = CursorUtil.decodeTimeKey(after);
+            position = ScrollPosition.forward(Map.of("createdAt", key.at(), "id", key.id()));
+        }
+        Window<Transfer> window = transfers.findByFromCard_Owner_IdOrderByCreatedAtDescIdDesc(userId, position, Limit.of(size));
+
+        Map<UUID, String> masked = new HashMap<>();
+        List<TransferResponse> list = window.stream().map(t -> toResponse(t, masked)).toList();
+        String next = null;
+        if (window.hasNext() && !list.isEmpty()) {
+            TransferResponse last = list.get(list.size() - 1);
+            next = CursorUtil.encode(last.getCreatedAt(), last.getId());
+        }
+        return SliceResponse.<TransferResponse>builder()
+                .content(list).size(size).hasNext(window.hasNext()).nextCursor(next).build();
+    }
+
+    /**
+     * Пишет переводы за период [from, to) в поток построчно. Строки читаются из БД порциями
+     * и сразу записываются, весь результат в памяти не держится.
+     */
+    @Transactional(readOnly = true)
+    public void export(Instant from, Instant to, ExportFormat format, OutputStream out) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        try (Stream<TransferExportRow> rows = transfers.streamForExport(from, to)) {
+            if (format == ExportFormat.CSV) writeCsv(rows, out);
+            else writeNdjson(rows, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeNdjson(Stream<TransferExportRow> rows, OutputStream out) throws IOException {
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.setRootValueSeparator(null);
+            rows.forEach(row -> {
+                try {
+                    rowWriter.writeValue(gen, row);
+                    gen.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static void writeCsv(Stream<TransferExportRow> rows, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        char[] pan = new char[MaskingUtil.MASKED_LENGTH];
+        writer.write(CSV_HEADER);
+        rows.forEach(row -> {
+            try {
+                writer.write(row.getId().toString());
+                writer.write(',');
+                writer.write(row.getCreatedAt().toString());
+                writer.write(',');
+                writer.write(row.getFromCardId().toString());
+                writer.write(',');
+                writer.write(pan, 0, MaskingUtil.maskPan(row.getFromCardNumber(), pan, 0));
+                writer.write(',');
+                writer.write(row.getToCardId().toString());
+                writer.write(',');
+                writer.write(pan, 0, MaskingUtil.maskPan(row.getToCardNumber(), pan, 0));
+                writer.write(',');
+                writer.write(row.getAmount().toPlainString());
+                writer.write(',');
+                writer.write(row.getStatus().name());
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    private static TransferResponse toResponse(Transfer t, Map<UUID, String> masked) {
+        Card from = t.getFromCard();
+        Card to = t.getToCard();
+        return TransferResponse.builder()
+                .id(t.getId())
+                .fromMaskedNumber(masked.computeIfAbsent(from.getId(), id -> MaskingUtil.maskPan(from.getCardNumber())))
+                .toMaskedNumber(masked.computeIfAbsent(to.getId(), id -> MaskingUtil.maskPan(to.getCardNumber())))
+                .amount(t.getAmount())
+                .createdAt(t.getCreatedAt())
+                .status(t.getStatus())
+                .build();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.bank.cards.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.repository.TransferIdempotencyRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Удаление ключей идемпотентности старше {@code transfer.idempotency.ttl-hours} порциями
+ * в отдельных коротких транзакциях.
+ */
+@Component
+@ConditionalOnProperty(name = "transfer.idempotency.cleanup.enabled", havingValue = "true", matchIfMissing = true)
+public class TransferIdempotencyCleanupJob {
+
+    private final TransferIdempotencyRepository repository;
+    private final TransactionTemplate tx;
+    private final Duration ttl;
+    private final int chunkSize;
+
+    public TransferIdempotencyCleanupJob(TransferIdempotencyRepository repository,
+                                         PlatformTransactionManager transactionManager,
+                                         @Value("${transfer.idempotency.ttl-hours:24}") long ttlHours,
+                                         @Value("${transfer.idempotency.cleanup.chunk-size:1000}") int chunkSize) {
+        this.repository = repository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Возвращает число удалённых ключей.
+     */
+    @Scheduled(fixedDelayString = "${transfer.idempotency.cleanup.interval-ms:600000}",
+            initialDelayString = "${transfer.idempotency.cleanup.interval-ms:600000}")
+    public int purge() {
+        Instant before = Instant.now().minus(ttl);
+        int total = 0;
+        int deleted;
+        do {
+            deleted = tx.execute(status -> repository.deleteExpired(before, chunkSize));
+            total += deleted;
+        } while (deleted == chunkSize);
+        return total;
+    }
+}
@@ -0,0 +1,142 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.dto.TransferResponse;
+import ru.bank.cards.entity.TransferIdempotency;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
+import ru.bank.cards.repository.TransferIdempotencyRepository;
+import ru.bank.cards.util.UuidV7;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранилище ключей идемпотентности переводов: таблица {@code transfer_idempotency} с уникальным
+ * (user_id, idempotency_key) и кэш недавних ответов перед ней, чтобы повторы клиента
+ * не открывали транзакцию.
+ */
+@Component
+public class TransferIdempotencyStore {
+
+    /**
+     * Ключ запроса пользователя и хэш его параметров.
+     */
+    public record Key(UUID userId, String key, String requestHash) {
+    }
+
+    private record CacheKey(UUID userId, String key) {
+    }
+
+    private record Stored(String requestHash, TransferResponse response) {
+    }
+
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final TransferIdempotencyRepository repository;
+    private final ObjectMapper mapper;
+    private final Cache<CacheKey, Stored> cache;
+
+    public TransferIdempotencyStore(TransferIdempotencyRepository repository,
+                                    ObjectMapper mapper,
+                                    @Value("${transfer.idempotency.cache.max-size:10000}") long maxSize,
+                                    @Value("${transfer.idempotency.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.repository = repository;
+        this.mapper = mapper;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(Math.max(0, maxSize))
+                .expireAfterWrite(Duration.ofSeconds(Math.max(0, ttlSeconds)))
+                .build();
+    }
+
+    /**
+     * Ключ перевода; сумма — уже нормализованная, чтобы «10» и «10.00» считались одним запросом.
+     */
+    public static Key key(UUID userId, String idempotencyKey, TransferRequest req, BigDecimal amount) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key должен быть непустым и не длиннее " + MAX_KEY_LENGTH + " символов");
+        }
+        String request = req.getFromCardId() + "|" + req.getToCardId() + "|" + amount.toPlainString();
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return new Key(userId, idempotencyKey, HexFormat.of().formatHex(hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Сохранённый ответ на запрос с этим ключом: из кэша, иначе из БД.
+     * Тот же ключ с другими параметрами — ошибка.
+     */
+    public Optional<TransferResponse> replay(Key key) {
+        CacheKey cacheKey = new CacheKey(key.userId(), key.key());
+        Stored stored = cache.getIfPresent(cacheKey);
+        if (stored == null) {
+            Optional<TransferIdempotency> row = repository.findByUserIdAndIdempotencyKey(key.userId(), key.key());
+            if (row.isEmpty() || row.get().getResponse() == null) return Optional.empty();
+            stored = new Stored(row.get().getRequestHash(), read(row.get().getResponse()));
+            cache.put(cacheKey, stored);
+        }
+        if (!stored.requestHash().equals(key.requestHash())) {
+            throw new EntityException(ErrorCode.IDEMPOTENCY_KEY_REUSED,
+                    "Idempotency-Key уже использован для перевода с другими параметрами");
+        }
+        return Optional.of(stored.response());
+    }
+
+    /**
+     * Занимает ключ в текущей транзакции. {@code false} — ключ уже занят завершённым запросом.
+     */
+    public boolean claim(Key key) {
+        return repository.claim(UuidV7.next(), key.userId(), key.key(), key.requestHash()) == 1;
+    }
+
+    /**
+     * Сохраняет ответ под занятым ключом; в кэш он попадает после коммита транзакции.
+     */
+    public void complete(Key key, TransferResponse response) {
+        repository.complete(key.userId(), key.key(), write(response));
+        Runnable publish = () -> cache.put(new CacheKey(key.userId(), key.key()), new Stored(key.requestHash(), response));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    private TransferResponse read(String json) {
+        try {
+            return mapper.readValue(json, TransferResponse.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохранённый ответ перевода", e);
+        }
+    }
+
+    private String write(TransferResponse response) {
+        try {
+            return mapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ перевода", e);
+        }
+    }
+}
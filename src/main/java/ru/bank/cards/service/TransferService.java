@@ -1,20 +1,32 @@
 package ru.bank.cards.service;
 
-import org.springframework.dao.OptimisticLockingFailureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.bank.cards.dto.TransferRequest;
 import ru.bank.cards.dto.TransferResponse;
 import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.LedgerEntry;
 import ru.bank.cards.entity.Transfer;
 import ru.bank.cards.entity.TransferStatus;
 import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
 import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
 import ru.bank.cards.repository.TransferRepository;
+import ru.bank.cards.util.MaskingUtil;
 
 import java.math.BigDecimal;
 import java.time.Instant;
-import java.util.UUID;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 import static ru.bank.cards.service.rules.CardRules.*;
 import static ru.bank.cards.service.rules.TransferRules.normalizeAmount;
@@ -22,66 +34,358 @@ import static ru.bank.cards.service.rules.TransferRules.requireDifferent;
 
 /**
  * Бизнес-логика переводов.
+ * <p>
+ * Перевод не изменяет строки карт: он добавляет в журнал {@link LedgerEntry} списание и зачисление,
+ * а баланс карты складывается из снимка и хвоста журнала (см. {@link Card#getBalance()}).
  */
 @Service
 public class TransferService {
 
+    /**
+     * Стратегия конкурентного доступа к картам при переводе.
+     */
+    public enum LockingMode {
+        /**
+         * Списываемые карты перевода или пакета блокируются FOR UPDATE, карты только для зачисления —
+         * FOR SHARE; все блокировки берутся в общем порядке id.
+         */
+        PESSIMISTIC,
+        /**
+         * Проверка по {@code @Version} карты-отправителя с ограниченным числом повторов;
+         * карта-получатель блокируется FOR SHARE.
+         */
+        OPTIMISTIC
+    }
+
+    static final String TIMER = "transfer";
+
+    /**
+     * Порядок взятия блокировок строк карт — тот же, что у {@code ORDER BY id} в PostgreSQL
+     * (беззнаковое побайтовое сравнение uuid), а не {@link UUID#compareTo}.
+     */
+    static final Comparator<UUID> LOCK_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+    private static final String OUTCOME_SUCCESS = "success";
+    private static final String OUTCOME_FAILURE = "failure";
+    private static final String CODE_NONE = "none";
+
     private final CardRepository cards;
     private final TransferRepository transfers;
+    private final LedgerEntryRepository ledger;
+    private final TransferIdempotencyStore idempotency;
+    private final CardBalanceCache balanceCache;
+    private final TransactionTemplate tx;
+    private final MeterRegistry meterRegistry;
+    private final LockingMode lockingMode;
+    private final int maxAttempts;
+    private final long backoffMs;
 
-    public TransferService(CardRepository cards, TransferRepository transfers) {
+    public TransferService(CardRepository cards,
+                           TransferRepository transfers,
+                           LedgerEntryRepository ledger,
+                           TransferIdempotencyStore idempotency,
+                           CardBalanceCache balanceCache,
+                           PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${transfer.locking.mode:PESSIMISTIC}") LockingMode lockingMode,
+                           @Value("${transfer.locking.max-attempts:3}") int maxAttempts,
+                           @Value("${transfer.locking.backoff-ms:20}") long backoffMs) {
         this.cards = cards;
         this.transfers = transfers;
+        this.ledger = ledger;
+        this.idempotency = idempotency;
+        this.balanceCache = balanceCache;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.lockingMode = lockingMode;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(0, backoffMs);
     }
 
     /**
      * Перевод между картами одного пользователя.
      */
-    @Transactional
     public TransferResponse transfer(UUID userId, TransferRequest req) {
-        requireDifferent(req.getFromCardId(), req.getToCardId());
-        BigDecimal amount = normalizeAmount(req.getAmount());
+        return transfer(userId, req, null);
+    }
 
-        Card from = cards.findById(req.getFromCardId())
-                .orElseThrow(() -> new jakarta.persistence.EntityNotFoundException("Не удалось найти карту-отправителя : " + userId.getClass().getName()));
-        Card to = cards.findById(req.getToCardId())
-                .orElseThrow(() -> new jakarta.persistence.EntityNotFoundException("Не удалось найти карту-получателя с ID: " + req.getToCardId()));
+    /**
+     * Перевод с ключом идемпотентности (может быть {@code null}). Повтор с тем же ключом возвращает
+     * ответ первого запроса: из кэша или таблицы ключей, без обращения к картам. Ключ занимается
+     * в транзакции перевода, поэтому параллельный повтор ждёт её окончания и получает её ответ.
+     * <p>
+     * Длительность пишется в таймер {@value #TIMER} с тегами {@code operation=single},
+     * {@code outcome} (success, replay, failure) и {@code code} (код ошибки).
+     */
+    public TransferResponse transfer(UUID userId, TransferRequest req, String idempotencyKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_FAILURE;
+        String code = CODE_NONE;
+        try {
+            requireDifferent(req.getFromCardId(), req.getToCardId());
+            BigDecimal amount = normalizeAmount(req.getAmount());
+
+            TransferIdempotencyStore.Key key = null;
+            if (idempotencyKey != null) {
+                key = TransferIdempotencyStore.key(userId, idempotencyKey, req, amount);
+                Optional<TransferResponse> replay = idempotency.replay(key);
+                if (replay.isPresent()) {
+                    outcome = "replay";
+                    return replay.get();
+                }
+            }
+            TransferIdempotencyStore.Key claimKey = key;
+            TransferResponse response = lockingMode == LockingMode.PESSIMISTIC
+                    ? tx.execute(status -> once(claimKey,
+                            () -> transferLocked(userId, List.of(req), List.of(amount), false).get(0)))
+                    : transferWithRetry(userId, req, amount, claimKey);
+            outcome = OUTCOME_SUCCESS;
+            return response;
+        } catch (RuntimeException ex) {
+            code = errorCode(ex);
+            throw ex;
+        } finally {
+            sample.stop(timer("single", outcome, code));
+        }
+    }
 
+    /**
+     * Выполняет перевод, если ключ ещё не занят; иначе возвращает ответ занявшего его запроса.
+     */
+    private TransferResponse once(TransferIdempotencyStore.Key key, Supplier<TransferResponse> transfer) {
+        if (key == null) return transfer.get();
+        if (!idempotency.claim(key)) {
+            return idempotency.replay(key).orElseThrow(() ->
+                    new EntityException(ErrorCode.CONCURRENT_UPDATE, "Перевод с этим Idempotency-Key ещё выполняется"));
+        }
+        TransferResponse response = transfer.get();
+        idempotency.complete(key, response);
+        return response;
+    }
+
+    /**
+     * Оптимистичный режим: версия карты-отправителя увеличивается при коммите, конфликт с параллельным
+     * списанием проявляется исключением коммита, после чего перевод повторяется целиком в новой
+     * транзакции с паузой со случайной составляющей. Карта-получатель блокируется FOR SHARE, чтобы
+     * параллельная блокировка карты не разминулась с зачислением; встречный перевод может столкнуться
+     * с этой блокировкой (deadlock, выбранный PostgreSQL), такой отказ тоже повторяется.
+     */
+    private TransferResponse transferWithRetry(UUID userId, TransferRequest req, BigDecimal amount,
+                                               TransferIdempotencyStore.Key key) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tx.execute(status -> once(key, () -> {
+                    Card from = cards.findByIdWithVersionIncrement(req.getFromCardId())
+                            .orElseThrow(() -> new EntityNotFoundException("Не удалось найти карту-отправителя с ID: " + req.getFromCardId()));
+                    Card to = cards.findByIdForShare(req.getToCardId())
+                            .orElseThrow(() -> new EntityNotFoundException("Не удалось найти карту-получателя с ID: " + req.getToCardId()));
+                    Map<UUID, BigDecimal> balances = new HashMap<>();
+                    balances.put(from.getId(), from.getBalance());
+                    return post(List.of(move(userId, from, to, amount, balances))).get(0);
+                }));
+            } catch (ConcurrencyFailureException ex) {
+                if (attempt >= maxAttempts) {
+                    throw new EntityException(ErrorCode.CONCURRENT_UPDATE, "Карта изменена параллельной операцией, повторите попытку");
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Пакетный перевод: карты пакета блокируются один раз, проверки идут в памяти
+     * последовательно (каждый перевод видит балансы после предыдущих), переводы и проводки
+     * вставляются JDBC-батчами. Пакет выполняется целиком или не выполняется вовсе.
+     */
+    public List<TransferResponse> transferBatch(UUID userId, List<TransferRequest> requests) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = OUTCOME_FAILURE;
+        String code = CODE_NONE;
+        try {
+            List<BigDecimal> amounts = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                TransferRequest req = requests.get(i);
+                try {
+                    requireDifferent(req.getFromCardId(), req.getToCardId());
+                    amounts.add(normalizeAmount(req.getAmount()));
+                } catch (EntityException ex) {
+                    throw itemFailure(i, ex);
+                }
+            }
+            List<TransferResponse> responses = tx.execute(status -> transferLocked(userId, requests, amounts, true));
+            outcome = OUTCOME_SUCCESS;
+            return responses;
+        } catch (RuntimeException ex) {
+            code = errorCode(ex);
+            throw ex;
+        } finally {
+            sample.stop(timer("batch", outcome, code));
+        }
+    }
+
+    /**
+     * Блокирует карты и только после этого читает балансы списываемых карт, чтобы видеть проводки
+     * завершившихся перед нами переводов. Списываемые карты блокируются FOR UPDATE, карты только
+     * для зачисления — FOR SHARE, поэтому зачисления на «горячую» карту идут параллельно.
+     */
+    private List<TransferResponse> transferLocked(UUID userId, List<TransferRequest> requests,
+                                                  List<BigDecimal> amounts, boolean batch) {
+        Set<UUID> debited = new HashSet<>();
+        SortedSet<UUID> ids = new TreeSet<>(LOCK_ORDER);
+        for (TransferRequest req : requests) {
+            debited.add(req.getFromCardId());
+            ids.add(req.getFromCardId());
+            ids.add(req.getToCardId());
+        }
+        Map<UUID, Card> locked = lock(ids, debited);
+        Map<UUID, BigDecimal> balances = new HashMap<>();
+        ledger.currentBalances(debited).forEach(b -> balances.put(b.getCardId(), b.getBalance()));
+
+        List<Transfer> posted = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            TransferRequest req = requests.get(i);
+            Card from = locked.get(req.getFromCardId());
+            Card to = locked.get(req.getToCardId());
+            if (from == null || to == null) {
+                throw notFound(batch ? i : -1, from == null, from == null ? req.getFromCardId() : req.getToCardId());
+            }
+            try {
+                posted.add(move(userId, from, to, amounts.get(i), balances));
+            } catch (EntityException ex) {
+                throw batch ? itemFailure(i, ex) : ex;
+            }
+        }
+        return post(posted);
+    }
+
+    /**
+     * Берёт блокировки строго в порядке {@link #LOCK_ORDER}, иначе встречные переводы блокировали бы
+     * друг друга. Подряд идущие карты с одним видом блокировки берутся одним запросом
+     * (его {@code ORDER BY id} сохраняет порядок), так что одиночный перевод — это два запроса.
+     */
+    private Map<UUID, Card> lock(SortedSet<UUID> ids, Set<UUID> debited) {
+        Map<UUID, Card> locked = new HashMap<>();
+        List<UUID> run = new ArrayList<>();
+        boolean exclusive = false;
+        for (UUID id : ids) {
+            if (!run.isEmpty() && debited.contains(id) != exclusive) {
+                lockRun(run, exclusive, locked);
+                run = new ArrayList<>();
+            }
+            exclusive = debited.contains(id);
+            run.add(id);
+        }
+        if (!run.isEmpty()) lockRun(run, exclusive, locked);
+        return locked;
+    }
+
+    private void lockRun(List<UUID> run, boolean exclusive, Map<UUID, Card> locked) {
+        List<Card> found = exclusive ? cards.findAllByIdForUpdate(run) : cards.findAllByIdForShare(run);
+        for (Card card : found) {
+            locked.put(card.getId(), card);
+        }
+    }
+
+    /**
+     * Проверки перевода и учёт его в балансах списываемых карт.
+     */
+    private Transfer move(UUID userId, Card from, Card to, BigDecimal amount, Map<UUID, BigDecimal> balances) {
+        LocalDate today = LocalDate.now();
         requireOwnedBy(from, userId);
         requireOwnedBy(to, userId);
         requireActive(from);
         requireActive(to);
-        requireNotExpired(from, java.time.LocalDate.now());
-        requireNotExpired(to, java.time.LocalDate.now());
+        requireNotExpired(from, today);
+        requireNotExpired(to, today);
 
-        if (from.getBalance().compareTo(amount) < 0) {
-            throw new EntityException(ru.bank.cards.exception.ErrorCode.NOT_ENOUGH_FUNDS, "Недостаточно средств");
-        }
-
-        try {
-            from.setBalance(from.getBalance().subtract(amount));
-            to.setBalance(to.getBalance().add(amount));
-        } catch (OptimisticLockingFailureException ex) {
-            throw new IllegalStateException("Повторите попытку");
+        BigDecimal available = balances.get(from.getId());
+        if (available.compareTo(amount) < 0) {
+            throw new EntityException(ErrorCode.NOT_ENOUGH_FUNDS, "Недостаточно средств");
         }
+        balances.put(from.getId(), available.subtract(amount));
+        balances.computeIfPresent(to.getId(), (id, balance) -> balance.add(amount));
 
-        Transfer t = Transfer.builder()
+        return Transfer.builder()
                 .fromCard(from)
                 .toCard(to)
                 .amount(amount)
                 .status(TransferStatus.COMPLETED)
                 .createdAt(Instant.now())
                 .build();
+    }
+
+    /**
+     * Сохраняет переводы и их проводки; кэш балансов затронутых карт сбрасывается после коммита.
+     */
+    private List<TransferResponse> post(List<Transfer> posted) {
+        List<LedgerEntry> entries = new ArrayList<>(posted.size() * 2);
+        Set<UUID> touched = new HashSet<>();
+        List<Transfer> saved = transfers.saveAll(posted);
+        for (Transfer t : saved) {
+            entries.add(LedgerEntry.debit(t));
+            entries.add(LedgerEntry.credit(t));
+            touched.add(t.getFromCard().getId());
+            touched.add(t.getToCard().getId());
+        }
+        ledger.saveAll(entries);
+        balanceCache.evictAfterCommit(touched);
 
-        Transfer saved = transfers.save(t);
+        Map<UUID, String> masked = new HashMap<>();
+        return saved.stream().map(t -> toResponse(t, masked)).toList();
+    }
 
+    private static TransferResponse toResponse(Transfer t, Map<UUID, String> masked) {
+        Card from = t.getFromCard();
+        Card to = t.getToCard();
         return TransferResponse.builder()
-                .id(saved.getId())
-                .fromMaskedNumber(ru.bank.cards.util.MaskingUtil.maskPan(from.getCardNumber()))
-                .toMaskedNumber(ru.bank.cards.util.MaskingUtil.maskPan(to.getCardNumber()))
-                .amount(amount)
-                .createdAt(saved.getCreatedAt())
-                .status(saved.getStatus())
+                .id(t.getId())
+                .fromMaskedNumber(masked.computeIfAbsent(from.getId(), id -> MaskingUtil.maskPan(from.getCardNumber())))
+                .toMaskedNumber(masked.computeIfAbsent(to.getId(), id -> MaskingUtil.maskPan(to.getCardNumber())))
+                .amount(t.getAmount())
+                .createdAt(t.getCreatedAt())
+                .status(t.getStatus())
                 .build();
     }
+
+    private Timer timer(String operation, String outcome, String code) {
+        return Timer.builder(TIMER)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("code", code)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Причина отказа для метрик: код бизнес-ошибки или класс исключения.
+     */
+    private static String errorCode(RuntimeException ex) {
+        if (ex instanceof EntityException entity) return entity.getCode().name();
+        if (ex instanceof EntityNotFoundException) return ErrorCode.NOT_FOUND.name();
+        return ex.getClass().getSimpleName();
+    }
+
+    private static EntityException itemFailure(int index, EntityException ex) {
+        return new EntityException(ex.getCode(), "Перевод [" + index + "]: " + ex.getMessage());
+    }
+
+    private static EntityNotFoundException notFound(int index, boolean sender, UUID id) {
+        if (index >= 0) {
+            return new EntityNotFoundException("Перевод [" + index + "]: не удалось найти карту с ID: " + id);
+        }
+        return new EntityNotFoundException((sender ? "Не удалось найти карту-отправителя с ID: "
+                : "Не удалось найти карту-получателя с ID: ") + id);
+    }
+
+    private void backoff(int attempt) {
+        long bound = backoffMs << Math.min(attempt - 1, 10);
+        if (bound == 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EntityException(ErrorCode.CONCURRENT_UPDATE, "Перевод прерван, повторите попытку");
+        }
+    }
 }
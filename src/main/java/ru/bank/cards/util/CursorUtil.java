@@ -0,0 +1,76 @@
+package ru.bank.cards.util;
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Кодирование курсоров keyset-пагинации в непрозрачные URL-безопасные строки.
+ */
+public final class CursorUtil {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private CursorUtil() {
+    }
+
+    /**
+     * Позиция в выборке, упорядоченной по (время, id).
+     */
+    public record TimeKey(Instant at, UUID id) {
+    }
+
+    public static String encode(UUID id) {
+        ByteBuffer buf = ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return ENCODER.encodeToString(buf.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException если курсор повреждён
+     */
+    public static UUID decodeId(String cursor) {
+        ByteBuffer buf = decode(cursor, 16);
+        return new UUID(buf.getLong(), buf.getLong());
+    }
+
+    public static String encode(Instant at, UUID id) {
+        ByteBuffer buf = ByteBuffer.allocate(28)
+                .putLong(at.getEpochSecond())
+                .putInt(at.getNano())
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits());
+        return ENCODER.encodeToString(buf.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException если курсор повреждён
+     */
+    public static TimeKey decodeTimeKey(String cursor) {
+        ByteBuffer buf = decode(cursor, 28);
+        Instant at;
+        try {
+            at = Instant.ofEpochSecond(buf.getLong(), buf.getInt());
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        return new TimeKey(at, new UUID(buf.getLong(), buf.getLong()));
+    }
+
+    private static ByteBuffer decode(String cursor, int length) {
+        byte[] bytes;
+        try {
+            bytes = DECODER.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            bytes = null;
+        }
+        if (bytes == null || bytes.length != length) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+}
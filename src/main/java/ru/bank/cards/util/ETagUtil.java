@@ -0,0 +1,49 @@
+package ru.bank.cards.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Сильные ETag карт для условных GET. Баланс и имя владельца входят в тег хэшем, а не открытым текстом.
+ */
+public final class ETagUtil {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final int HASH_BYTES = 12;
+
+    private ETagUtil() {
+    }
+
+    /**
+     * Тег карты: её версия меняется при изменении строки карты, баланс — при переводах,
+     * имя владельца (оно есть в ответе) — при изменении пользователя.
+     */
+    public static String card(UUID id, int version, BigDecimal balance, String ownerName) {
+        return "\"" + id + "." + version + "." + hash(id + "|" + plain(balance) + "|" + ownerName) + "\"";
+    }
+
+    /**
+     * Тег баланса карты.
+     */
+    public static String balance(UUID id, BigDecimal balance) {
+        return "\"" + id + ".b." + hash(id + "|" + plain(balance)) + "\"";
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.stripTrailingZeros().toPlainString();
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ENCODER.encodeToString(Arrays.copyOf(digest, HASH_BYTES));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package ru.bank.cards.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Пишет полный номер карты в JSON сразу в маскированном виде, без промежуточной строки:
+ * {@code @JsonSerialize(using = MaskedPanSerializer.class)}.
+ */
+public class MaskedPanSerializer extends StdSerializer<CharSequence> {
+
+    public MaskedPanSerializer() {
+        super(CharSequence.class);
+    }
+
+    @Override
+    public void serialize(CharSequence pan, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        char[] buf = new char[MaskingUtil.MASKED_LENGTH];
+        gen.writeString(buf, 0, MaskingUtil.maskPan(pan, buf, 0));
+    }
+}
@@ -7,13 +7,70 @@ public final class MaskingUtil {
     private MaskingUtil() {
     }
 
+    private static final String MASK_PREFIX = "**** **** **** ";
+    private static final String FULL_MASK = "**** **** **** ****";
+
+    /**
+     * Максимальная длина маскированного номера.
+     */
+    public static final int MASKED_LENGTH = FULL_MASK.length();
+
     /**
-     * Маскирует номер карты, оставляя последние 4 цифры.
+     * Маскирует номер карты, оставляя последние 4 символа без учёта пробельных.
      */
     public static String maskPan(String pan) {
-        if (pan == null || pan.isBlank()) return "**** **** **** ****";
-        String digits = pan.replaceAll("\\s+", "");
-        String last4 = digits.length() >= 4 ? digits.substring(digits.length() - 4) : digits;
-        return "**** **** **** " + last4;
+        if (pan == null) return FULL_MASK;
+        char[] out = new char[MASKED_LENGTH];
+        return new String(out, 0, maskPan(pan, out, 0));
+    }
+
+    /**
+     * Пишет маскированный номер в {@code out} начиная с {@code offset} без промежуточных строк
+     * (для сериализаторов и потоковой выгрузки). Возвращает число записанных символов,
+     * не больше {@link #MASKED_LENGTH}.
+     * <p>
+     * Результат совпадает с прежним {@code "**** **** **** " + последние 4 символа pan.replaceAll("\\s+", "")},
+     * для null и пустых/пробельных номеров — {@code "**** **** **** ****"}.
+     */
+    public static int maskPan(CharSequence pan, char[] out, int offset) {
+        int prefix = MASK_PREFIX.length();
+        int n = 0;
+        boolean blank = true;
+        if (pan != null) {
+            for (int i = pan.length() - 1; i >= 0 && (n < 4 || blank); i--) {
+                char ch = pan.charAt(i);
+                if (blank && !Character.isWhitespace(ch)) blank = false;
+                if (n < 4 && !isRegexSpace(ch)) out[offset + prefix + 3 - n++] = ch;
+            }
+        }
+        if (blank) {
+            FULL_MASK.getChars(0, MASKED_LENGTH, out, offset);
+            return MASKED_LENGTH;
+        }
+        if (n < 4) System.arraycopy(out, offset + prefix + 4 - n, out, offset + prefix, n);
+        MASK_PREFIX.getChars(0, prefix, out, offset);
+        return prefix + n;
+    }
+
+    /**
+     * Символы класса {@code \s} регулярных выражений Java: [ \t\n\x0B\f\r].
+     */
+    private static boolean isRegexSpace(char ch) {
+        return ch == ' ' || (ch >= '\t' && ch <= '\r');
+    }
+
+    /**
+     * Последние 4 цифры номера (пробелы и прочие нецифровые символы отбрасываются).
+     * Для номеров короче 4 цифр возвращает все цифры.
+     */
+    public static String last4(String pan) {
+        if (pan == null) return "";
+        char[] out = new char[4];
+        int n = 0;
+        for (int i = pan.length() - 1; i >= 0 && n < 4; i--) {
+            char ch = pan.charAt(i);
+            if (ch >= '0' && ch <= '9') out[3 - n++] = ch;
+        }
+        return new String(out, 4 - n, n);
     }
 }
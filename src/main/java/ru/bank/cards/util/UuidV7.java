@@ -0,0 +1,46 @@
+package ru.bank.cards.util;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор упорядоченных по времени UUID версии 7 (RFC 9562).
+ * <p>
+ * Старшие 48 бит — миллисекунды Unix-времени, следующие 12 бит — счётчик внутри миллисекунды,
+ * поэтому значения монотонно возрастают в пределах JVM и вставляются в конец B-tree индекса.
+ */
+public final class UuidV7 {
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private UuidV7() {
+    }
+
+    public static UUID next() {
+        long tick = nextTick(System.currentTimeMillis());
+        long msb = (tick >>> 12) << 16 | 0x7000L | (tick & 0xFFFL);
+        long lsb = ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+
+    /**
+     * Миллисекунды, записанные в UUID версии 7.
+     */
+    public static long timestampMillis(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+
+    /**
+     * Состояние (миллисекунды << 12 | счётчик). При переполнении счётчика или отставании часов
+     * значение просто увеличивается на единицу, «занимая» следующую миллисекунду.
+     */
+    private static long nextTick(long nowMillis) {
+        long candidate = nowMillis << 12;
+        while (true) {
+            long last = LAST.get();
+            long next = candidate > last ? candidate : last + 1;
+            if (LAST.compareAndSet(last, next)) return next;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package ru.bank.cards;
+
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * База для интеграционных тестов на настоящем PostgreSQL (миграции Liquibase применяются при старте контекста).
+ * Без Docker такие тесты пропускаются.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class AbstractPostgresTest {
+
+    @Container
+    @ServiceConnection
+    protected static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+}
@@ -0,0 +1,76 @@
+package ru.bank.cards.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import ru.bank.cards.entity.Role;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.security.JwtService;
+import ru.bank.cards.security.ParsedJwt;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выпуск и проверка JWT: {@link JwtService} с ключом и парсером, созданными один раз,
+ * против прежней схемы, где ключ декодировался и парсер собирался на каждый разбор.
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="JwtServiceBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class JwtServiceBenchmark {
+
+    private static final String SECRET = "u8rTn6y5Wl+E4z1ZkF3LQxH6Pd2Q9J4V6Y7bN1Qe3wM=";
+
+    private JwtService jwtService;
+    private User user;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtService = new JwtService(SECRET, "default", "", 86_400_000L);
+        user = User.builder()
+                .id(UUID.randomUUID())
+                .email("bench@mail.com")
+                .role(Role.USER)
+                .build();
+        token = jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public String issue() {
+        return jwtService.generateToken(user);
+    }
+
+    @Benchmark
+    public Optional<ParsedJwt> validate() {
+        return jwtService.parse(token);
+    }
+
+    /**
+     * Прежняя проверка: три разбора (subject, subject, expiration), каждый с новым ключом и парсером.
+     */
+    @Benchmark
+    public boolean validateRebuildingParser() {
+        String subject = parseLegacy().getSubject();
+        return subject.equals(parseLegacy().getSubject())
+                && parseLegacy().getExpiration().getTime() > System.currentTimeMillis();
+    }
+
+    private Claims parseLegacy() {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
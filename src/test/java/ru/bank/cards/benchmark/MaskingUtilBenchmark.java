@@ -0,0 +1,55 @@
+package ru.bank.cards.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.bank.cards.util.MaskingUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маскирование номера карты для ответов API.
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="MaskingUtilBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MaskingUtilBenchmark {
+
+    @Param({"4000 1234 5678 9010", "4000123456789010"})
+    public String pan;
+
+    private final char[] buffer = new char[MaskingUtil.MASKED_LENGTH];
+
+    @Benchmark
+    public String maskPan() {
+        return MaskingUtil.maskPan(pan);
+    }
+
+    /**
+     * Запись в переиспользуемый буфер, как в {@code MaskedPanSerializer}.
+     */
+    @Benchmark
+    public int maskPanIntoBuffer() {
+        return MaskingUtil.maskPan(pan, buffer, 0);
+    }
+
+    /**
+     * Прежняя реализация через {@code replaceAll("\\s+", "")} — точка отсчёта.
+     */
+    @Benchmark
+    public String maskPanRegex() {
+        if (pan == null || pan.isBlank()) return "**** **** **** ****";
+        String digits = pan.replaceAll("\\s+", "");
+        String last4 = digits.length() >= 4 ? digits.substring(digits.length() - 4) : digits;
+        return "**** **** **** " + last4;
+    }
+
+    @Benchmark
+    public String last4() {
+        return MaskingUtil.last4(pan);
+    }
+}
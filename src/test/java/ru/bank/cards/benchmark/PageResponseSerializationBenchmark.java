@@ -0,0 +1,71 @@
+package ru.bank.cards.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+import ru.bank.cards.dto.CardResponse;
+import ru.bank.cards.dto.PageResponse;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.util.MaskingUtil;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация страницы карт в JSON с настройками, близкими к Spring Boot
+ * (JavaTimeModule, даты строками).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class PageResponseSerializationBenchmark {
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private ObjectWriter writer;
+    private PageResponse<CardResponse> page;
+
+    @Setup
+    public void setUp() {
+        writer = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writer();
+        UUID ownerId = UUID.randomUUID();
+        List<CardResponse> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(CardResponse.builder()
+                    .id(UUID.randomUUID())
+                    .maskedNumber(MaskingUtil.maskPan("4000 1234 5678 " + (1000 + i)))
+                    .ownerId(ownerId)
+                    .ownerName("Иван Иванов")
+                    .expiresAt(LocalDate.now().plusYears(3))
+                    .status(CardStatus.ACTIVE)
+                    .balance(new BigDecimal("12345.67"))
+                    .build());
+        }
+        page = PageResponse.<CardResponse>builder()
+                .content(content)
+                .page(0)
+                .size(pageSize)
+                .totalElements(10_000)
+                .totalPages(10_000 / pageSize)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return writer.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,96 @@
+package ru.bank.cards.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.bank.cards.security.RateLimitFilter;
+import ru.bank.cards.security.RateLimitProperties;
+import ru.bank.cards.security.RateLimiter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Накладные расходы ограничения частоты на запрос: поиск правила и списание токена, в том числе
+ * из четырёх потоков в одну корзину (конкурирующий CAS) и по 10 000 разных пользователей
+ * (промахи кэша корзин), а также весь {@link RateLimitFilter} на mock-запросе.
+ * Корзины настроены так, что запросы не отклоняются.
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="RateLimiterBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    private static final String BALANCE = "/api/users/b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00/cards/10000000-0000-0000-0000-000000000001/balance";
+    private static final int USERS = 10_000;
+
+    private RateLimiter limiter;
+    private RateLimiter.Rule balanceRule;
+    private String[] users;
+    private RateLimitFilter filter;
+    private final FilterChain chain = (request, response) -> {
+    };
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        int next;
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", BALANCE);
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+    }
+
+    @Setup
+    public void setUp() {
+        RateLimitProperties properties = new RateLimitProperties(true, 100_000, List.of(
+                new RateLimitProperties.Rule("auth", "/auth/**", RateLimitProperties.KeyBy.IP, 10, 1),
+                new RateLimitProperties.Rule("balance", "/api/users/*/cards/*/balance", RateLimitProperties.KeyBy.USER,
+                        1_000_000_000L, 1_000_000_000d),
+                new RateLimitProperties.Rule("api", "/api/**", RateLimitProperties.KeyBy.USER, 200, 50)));
+        limiter = new RateLimiter(properties);
+        balanceRule = limiter.match(BALANCE);
+        users = new String[USERS];
+        for (int i = 0; i < USERS; i++) users[i] = "user:u" + i + "@mail.com";
+        filter = new RateLimitFilter(limiter, new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public RateLimiter.Rule match() {
+        return limiter.match(BALANCE);
+    }
+
+    @Benchmark
+    public long acquireSameUser() {
+        return limiter.tryAcquire(balanceRule, users[0]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long acquireSameUserContended() {
+        return limiter.tryAcquire(balanceRule, users[0]);
+    }
+
+    @Benchmark
+    public long acquireManyUsers(PerThread state) {
+        state.next = (state.next + 1) % USERS;
+        return limiter.tryAcquire(balanceRule, users[state.next]);
+    }
+
+    /**
+     * Весь фильтр: путь запроса, правило, ключ по IP (без аутентификации), корзина.
+     */
+    @Benchmark
+    public int filter(PerThread state) throws ServletException, IOException {
+        filter.doFilter(state.request, state.response, chain);
+        return state.response.getStatus();
+    }
+}
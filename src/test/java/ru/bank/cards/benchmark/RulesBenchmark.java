@@ -0,0 +1,89 @@
+package ru.bank.cards.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.service.rules.CardRules;
+import ru.bank.cards.service.rules.TransferRules;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверки {@link TransferRules} и {@link CardRules}, выполняемые на каждый перевод:
+ * успешный путь и отказ (стоимость создания {@link EntityException}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class RulesBenchmark {
+
+    /**
+     * Суммы с разным масштабом: без округления, с дополнением нулями и с округлением.
+     */
+    @State(Scope.Benchmark)
+    public static class Amount {
+        @Param({"100", "100.5", "100.555"})
+        public String amount;
+
+        private BigDecimal value;
+
+        @Setup
+        public void setUp() {
+            value = new BigDecimal(amount);
+        }
+    }
+
+    private Card card;
+    private Card blocked;
+    private UUID ownerId;
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        ownerId = UUID.randomUUID();
+        today = LocalDate.now();
+        User owner = User.builder().id(ownerId).build();
+        card = Card.builder()
+                .owner(owner)
+                .status(CardStatus.ACTIVE)
+                .expiresAt(today.plusYears(1))
+                .build();
+        blocked = Card.builder()
+                .owner(owner)
+                .status(CardStatus.BLOCKED)
+                .expiresAt(today.plusYears(1))
+                .build();
+    }
+
+    @Benchmark
+    public BigDecimal normalizeAmount(Amount amount) {
+        return TransferRules.normalizeAmount(amount.value);
+    }
+
+    @Benchmark
+    public void cardChecks(Blackhole bh) {
+        CardRules.requireOwnedBy(card, ownerId);
+        CardRules.requireActive(card);
+        CardRules.requireNotExpired(card, today);
+        bh.consume(card);
+    }
+
+    @Benchmark
+    public Object cardChecksRejected() {
+        try {
+            CardRules.requireActive(blocked);
+            return blocked;
+        } catch (EntityException ex) {
+            return ex;
+        }
+    }
+}
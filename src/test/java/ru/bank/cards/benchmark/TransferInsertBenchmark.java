@@ -0,0 +1,93 @@
+package ru.bank.cards.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.bank.cards.util.UuidV7;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вставки строк переводов в PostgreSQL: по одной (как без hibernate.jdbc.batch_size) против
+ * JDBC-батча, случайные UUIDv4 против UUIDv7. Результат — строк в секунду.
+ * <p>
+ * Требует PostgreSQL с применёнными миграциями; пишет только во временную копию таблицы
+ * {@code bench_transfer} (та же структура и индексы, без внешних ключей):
+ * <pre>
+ * mvn -Pbenchmarks -DskipTests verify -Djmh.args="TransferInsertBenchmark" \
+ *     -Dbench.jdbc.url=jdbc:postgresql://localhost:5432/bankdb?reWriteBatchedInserts=true
+ * </pre>
+ * Форк JMH наследует системные свойства bench.jdbc.* родительской JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class TransferInsertBenchmark {
+
+    private static final int ROWS_PER_INVOCATION = 50;
+
+    public enum IdStrategy {RANDOM_V4, TIME_ORDERED_V7}
+
+    @Param({"RANDOM_V4", "TIME_ORDERED_V7"})
+    public IdStrategy ids;
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private Connection connection;
+    private PreparedStatement insert;
+    private final UUID fromCard = UUID.randomUUID();
+    private final UUID toCard = UUID.randomUUID();
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/bankdb"),
+                System.getProperty("bench.jdbc.user", "bank"),
+                System.getProperty("bench.jdbc.password", "bank"));
+        try (Statement st = connection.createStatement()) {
+            st.execute("drop table if exists bench_transfer");
+            st.execute("create table bench_transfer (like transfer including defaults including indexes)");
+        }
+        connection.setAutoCommit(false);
+        insert = connection.prepareStatement(
+                "insert into bench_transfer (id, from_card_id, to_card_id, amount, created_at, status) values (?, ?, ?, ?, ?, ?)");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        insert.close();
+        connection.setAutoCommit(true);
+        try (Statement st = connection.createStatement()) {
+            st.execute("drop table if exists bench_transfer");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_INVOCATION)
+    public void insertTransfers() throws SQLException {
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 1; i <= ROWS_PER_INVOCATION; i++) {
+            insert.setObject(1, ids == IdStrategy.RANDOM_V4 ? UUID.randomUUID() : UuidV7.next());
+            insert.setObject(2, fromCard);
+            insert.setObject(3, toCard);
+            insert.setBigDecimal(4, BigDecimal.TEN);
+            insert.setTimestamp(5, now);
+            insert.setString(6, "COMPLETED");
+            if (batchSize == 1) {
+                insert.executeUpdate();
+            } else {
+                insert.addBatch();
+                if (i % batchSize == 0) insert.executeBatch();
+            }
+        }
+        if (batchSize > 1) insert.executeBatch();
+        connection.commit();
+    }
+}
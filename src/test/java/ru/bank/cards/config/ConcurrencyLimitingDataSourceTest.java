@@ -0,0 +1,85 @@
+package ru.bank.cards.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyLimitingDataSourceTest {
+
+    private DataSource target;
+    private ConcurrencyLimitingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(inv -> mock(Connection.class));
+        dataSource = new ConcurrencyLimitingDataSource(target, 2, 10);
+    }
+
+    @Test
+    void permitIsHeldUntilConnectionIsClosed() throws SQLException {
+        Connection first = dataSource.getConnection();
+        Connection second = dataSource.getConnection();
+
+        assertThat(dataSource.availablePermits()).isZero();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        verify(target, times(2)).getConnection();
+
+        first.close();
+        first.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(1);
+        second.close();
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void callsAreDelegatedToTargetConnection() throws SQLException {
+        Connection raw = mock(Connection.class);
+        when(target.getConnection()).thenReturn(raw);
+        when(raw.getAutoCommit()).thenReturn(true);
+
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+        }
+        verify(raw).close();
+    }
+
+    @Test
+    void failedAcquireReleasesPermit() throws SQLException {
+        when(target.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("pool exhausted");
+        assertThat(dataSource.availablePermits()).isEqualTo(2);
+    }
+
+    @Test
+    void unlimitedCallersBypassSemaphore() throws SQLException {
+        AtomicBoolean request = new AtomicBoolean(true);
+        ConcurrencyLimitingDataSource requestsOnly = new ConcurrencyLimitingDataSource(target, 1, 10, request::get);
+        requestsOnly.getConnection();
+        assertThatThrownBy(requestsOnly::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        request.set(false);
+        requestsOnly.getConnection().close();
+
+        assertThat(requestsOnly.availablePermits()).isZero();
+    }
+
+    @Test
+    void permitsLeaveHeadroomBelowPoolSize() {
+        assertThat(DatabaseConcurrencyConfig.permits(20, 4, 0)).isEqualTo(16);
+        assertThat(DatabaseConcurrencyConfig.permits(20, 0, 0)).isEqualTo(19);
+        assertThat(DatabaseConcurrencyConfig.permits(20, 4, 25)).isEqualTo(19);
+        assertThat(DatabaseConcurrencyConfig.permits(20, 4, 8)).isEqualTo(8);
+        assertThat(DatabaseConcurrencyConfig.permits(2, 5, 0)).isEqualTo(1);
+    }
+}
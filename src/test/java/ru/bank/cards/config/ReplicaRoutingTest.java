@@ -0,0 +1,123 @@
+package ru.bank.cards.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.bank.cards.service.ReadYourWrites;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+    private DataSource dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        primary = mock(DataSource.class);
+        replica = mock(DataSource.class);
+        when(primary.getConnection()).thenAnswer(inv -> connection());
+        when(replica.getConnection()).thenAnswer(inv -> connection());
+        lagMonitor = mock(ReplicaLagMonitor.class);
+        when(lagMonitor.usable()).thenReturn(true);
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(primary);
+        // Иначе прокси возьмёт пробное соединение с основной БД для чтения настроек по умолчанию
+        proxy.setDefaultAutoCommit(true);
+        proxy.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        proxy.setReadOnlyDataSource(new ReplicaAwareDataSource(replica, primary, lagMonitor));
+        dataSource = proxy;
+    }
+
+    private static Connection connection() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.getAutoCommit()).thenReturn(true);
+        when(connection.getTransactionIsolation()).thenReturn(Connection.TRANSACTION_READ_COMMITTED);
+        return connection;
+    }
+
+    /**
+     * Как транзакция: признак read-only выставляется до первого запроса.
+     */
+    private void query(boolean readOnly) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(readOnly);
+            connection.createStatement();
+        }
+    }
+
+    @Test
+    void readOnlyTransaction_goesToReplica() throws SQLException {
+        query(true);
+
+        verify(replica).getConnection();
+        verify(primary, never()).getConnection();
+    }
+
+    @Test
+    void writeTransaction_goesToPrimary() throws SQLException {
+        query(false);
+
+        verify(primary).getConnection();
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void laggingReplica_readsFromPrimary() throws SQLException {
+        when(lagMonitor.usable()).thenReturn(false);
+
+        query(true);
+
+        verify(primary).getConnection();
+        verifyNoInteractions(replica);
+    }
+
+    @Test
+    void readAfterOwnWrite_goesToPrimaryOnlyForThatUser() throws Exception {
+        ReadYourWrites readYourWrites = new ReadYourWrites(5_000, 100);
+        UUID writer = UUID.randomUUID();
+        readYourWrites.written(writer);
+
+        readYourWrites.read(writer, () -> {
+            assertThat(ReadYourWrites.primaryRequired()).isTrue();
+            return run(() -> query(true));
+        });
+        readYourWrites.read(UUID.randomUUID(), () -> run(() -> query(true)));
+
+        verify(primary, times(1)).getConnection();
+        verify(replica, times(1)).getConnection();
+        assertThat(ReadYourWrites.primaryRequired()).isFalse();
+    }
+
+    @Test
+    void lagMonitor_unreachableReplica_isNotUsable() throws SQLException {
+        DataSource down = mock(DataSource.class);
+        when(down.getConnection()).thenThrow(new SQLException("connection refused"));
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(down, 1_000);
+
+        monitor.check();
+
+        assertThat(monitor.usable()).isFalse();
+        assertThat(monitor.lagMs()).isEqualTo(-1);
+    }
+
+    private interface SqlAction {
+        void run() throws SQLException;
+    }
+
+    private static Void run(SqlAction action) {
+        try {
+            action.run();
+            return null;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package ru.bank.cards.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityConfigTest {
+
+    @Test
+    void prometheusIsPublicOnlyOnSeparateManagementPort() {
+        assertThat(SecurityConfig.separatePort("8081", "8080")).isTrue();
+        assertThat(SecurityConfig.separatePort("", "8080")).isFalse();
+        assertThat(SecurityConfig.separatePort("8080", "8080")).isFalse();
+        assertThat(SecurityConfig.separatePort(" 8080", "8080")).isFalse();
+    }
+}
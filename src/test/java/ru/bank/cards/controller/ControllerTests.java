@@ -1,20 +1,34 @@
 package ru.bank.cards.controller;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import ru.bank.cards.dto.*;
 import ru.bank.cards.entity.CardStatus;
 import ru.bank.cards.entity.Role;
 import ru.bank.cards.entity.User;
 import ru.bank.cards.repository.UserRepository;
 import ru.bank.cards.security.JwtService;
+import ru.bank.cards.service.CardIssueService;
 import ru.bank.cards.service.CardService;
+import ru.bank.cards.service.ReadYourWrites;
+import ru.bank.cards.service.TransferHistoryService;
 import ru.bank.cards.service.TransferService;
 
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -33,6 +47,8 @@ class ControllerTests {
     @Mock
     private TransferService transferService;
     @Mock
+    private TransferHistoryService transferHistoryService;
+    @Mock
     private UserRepository userRepository;
     @Mock
     private JwtService jwtService;
@@ -41,11 +57,12 @@ class ControllerTests {
     void setup() {
         cardService = mock(CardService.class);
         transferService = mock(TransferService.class);
+        transferHistoryService = mock(TransferHistoryService.class);
         userRepository = mock(UserRepository.class);
         jwtService = mock(JwtService.class);
 
-        adminCardController = new AdminCardController(cardService);
-        userCardController = new UserCardController(cardService, transferService);
+        adminCardController = new AdminCardController(cardService, mock(CardIssueService.class));
+        userCardController = new UserCardController(cardService, transferService, transferHistoryService, new ReadYourWrites(5_000, 100));
         authController = new AuthController(
                 userRepository,
                 mock(org.springframework.security.crypto.password.PasswordEncoder.class),
@@ -82,6 +99,17 @@ class ControllerTests {
         verify(cardService, times(1)).updateStatus(cardId, CardStatus.ACTIVE);
     }
 
+    @Test
+    void adminApproveBlocks_passesSelectedIds() {
+        List<UUID> ids = List.of(UUID.randomUUID());
+        when(cardService.approveBlocks(ids)).thenReturn(new BulkBlockResponse(1));
+
+        BulkBlockResponse response = adminCardController.approveBlocks(new BulkBlockRequest(ids));
+
+        assertEquals(1, response.getBlocked());
+        verify(cardService, times(1)).approveBlocks(ids);
+    }
+
     @Test
     void adminDelete_callsService() {
         UUID cardId = UUID.randomUUID();
@@ -109,14 +137,31 @@ class ControllerTests {
         UUID userId = UUID.randomUUID();
         UUID cardId = UUID.randomUUID();
         CardResponse mock = CardResponse.builder().build();
+        when(cardService.getUserCardETag(userId, cardId)).thenReturn(Optional.of("\"tag-1\""));
         when(cardService.getUserCard(userId, cardId)).thenReturn(mock);
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
 
-        CardResponse result = userCardController.card(userId, cardId);
+        CardResponse result = userCardController.card(userId, cardId, webRequest(null, servletResponse));
 
         assertNotNull(result);
+        assertEquals("\"tag-1\"", servletResponse.getHeader("ETag"));
         verify(cardService, times(1)).getUserCard(userId, cardId);
     }
 
+    @Test
+    void userCard_matchingIfNoneMatch_returnsNotModifiedWithoutLoadingCard() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        when(cardService.getUserCardETag(userId, cardId)).thenReturn(Optional.of("\"tag-1\""));
+        MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+
+        CardResponse result = userCardController.card(userId, cardId, webRequest("\"tag-1\"", servletResponse));
+
+        assertNull(result);
+        assertEquals(304, servletResponse.getStatus());
+        verify(cardService, never()).getUserCard(any(), any());
+    }
+
     @Test
     void userBalance_returnsBalanceResponse() {
         UUID userId = UUID.randomUUID();
@@ -124,23 +169,39 @@ class ControllerTests {
         BalanceResponse mock = BalanceResponse.builder().build();
         when(cardService.getUserCardBalance(userId, cardId)).thenReturn(mock);
 
-        BalanceResponse result = userCardController.balance(userId, cardId);
+        BalanceResponse result = userCardController.balance(userId, cardId, webRequest(null, new MockHttpServletResponse()));
 
         assertNotNull(result);
         verify(cardService, times(1)).getUserCardBalance(userId, cardId);
     }
 
+    @Test
+    void userBalance_unchangedBalance_returnsNotModified() {
+        UUID userId = UUID.randomUUID();
+        UUID cardId = UUID.randomUUID();
+        when(cardService.getUserCardBalance(userId, cardId))
+                .thenReturn(BalanceResponse.builder().cardId(cardId).balance(new BigDecimal("10.00")).build());
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        userCardController.balance(userId, cardId, webRequest(null, first));
+        MockHttpServletResponse second = new MockHttpServletResponse();
+
+        BalanceResponse result = userCardController.balance(userId, cardId, webRequest(first.getHeader("ETag"), second));
+
+        assertNull(result);
+        assertEquals(304, second.getStatus());
+    }
+
     @Test
     void userTransfer_callsService() {
         UUID userId = UUID.randomUUID();
         TransferRequest request = TransferRequest.builder().build();
         TransferResponse mock = TransferResponse.builder().build();
-        when(transferService.transfer(userId, request)).thenReturn(mock);
+        when(transferService.transfer(userId, request, "key-1")).thenReturn(mock);
 
-        TransferResponse result = userCardController.transfer(userId, request);
+        TransferResponse result = userCardController.transfer(userId, "key-1", request);
 
         assertNotNull(result);
-        verify(transferService, times(1)).transfer(userId, request);
+        verify(transferService, times(1)).transfer(userId, request, "key-1");
     }
 
     @Test
@@ -156,6 +217,40 @@ class ControllerTests {
         verify(cardService, times(1)).requestBlock(userId, cardId);
     }
 
+    @Test
+    void userTransferBatch_callsService() {
+        UUID userId = UUID.randomUUID();
+        List<TransferRequest> requests = List.of(TransferRequest.builder().build(), TransferRequest.builder().build());
+        when(transferService.transferBatch(userId, requests))
+                .thenReturn(List.of(TransferResponse.builder().build(), TransferResponse.builder().build()));
+
+        List<TransferResponse> result = userCardController.transferBatch(userId, requests);
+
+        assertEquals(2, result.size());
+        verify(transferService, times(1)).transferBatch(userId, requests);
+    }
+
+    @Test
+    void scrollSize_outsideOneToHundred_violatesConstraints() {
+        assertEquals(1, violations(userCardController, "scrollMyCards", UUID.randomUUID(), null, null, 0).size());
+        assertEquals(1, violations(userCardController, "scrollMyCards", UUID.randomUUID(), null, null, 101).size());
+        assertTrue(violations(userCardController, "scrollMyCards", UUID.randomUUID(), null, null, 100).isEmpty());
+        assertEquals(1, violations(adminCardController, "scrollAll", null, null, null, -1).size());
+        assertEquals(1, violations(userCardController, "transfers", UUID.randomUUID(), null, 1_000_000).size());
+    }
+
+    @Test
+    void userTransferHistory_callsService() {
+        UUID userId = UUID.randomUUID();
+        SliceResponse<TransferResponse> slice = SliceResponse.<TransferResponse>builder().content(List.of()).size(20).build();
+        when(transferHistoryService.history(userId, "cursor", 20)).thenReturn(slice);
+
+        SliceResponse<TransferResponse> result = userCardController.transfers(userId, "cursor", 20);
+
+        assertSame(slice, result);
+        verify(transferHistoryService, times(1)).history(userId, "cursor", 20);
+    }
+
     @Test
     void register_returnsToken() {
         String email = "test@mail.com";
@@ -166,7 +261,7 @@ class ControllerTests {
                 .build();
 
         when(userRepository.findByEmail(email)).thenReturn(Optional.empty());
-        when(jwtService.generateToken(email)).thenReturn("jwt-token");
+        when(jwtService.generateToken(any(User.class))).thenReturn("jwt-token");
         when(userRepository.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         ResponseEntity<?> response = authController.register(request);
@@ -205,7 +300,7 @@ class ControllerTests {
                 .build();
 
         when(userRepository.findByEmail(email)).thenReturn(Optional.of(user));
-        when(jwtService.generateToken(email)).thenReturn("jwt-token");
+        when(jwtService.generateToken(any(User.class))).thenReturn("jwt-token");
 
         ResponseEntity<?> response = authController.login(request);
 
@@ -240,4 +335,22 @@ class ControllerTests {
         ResponseEntity<?> response = controller.login(request);
         assertEquals(401, response.getStatusCodeValue());
     }
+
+    private static ServletWebRequest webRequest(String ifNoneMatch, MockHttpServletResponse response) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/cards");
+        if (ifNoneMatch != null) request.addHeader("If-None-Match", ifNoneMatch);
+        return new ServletWebRequest(request, response);
+    }
+
+    /**
+     * Нарушения ограничений параметров метода контроллера, как их проверяет @Validated.
+     */
+    private static Set<ConstraintViolation<Object>> violations(Object controller, String name, Object... args) {
+        Method method = Arrays.stream(controller.getClass().getMethods())
+                .filter(m -> m.getName().equals(name))
+                .findFirst().orElseThrow();
+        try (ValidatorFactory factory = Validation.buildDefaultValidatorFactory()) {
+            return factory.getValidator().forExecutables().validateParameters(controller, method, args);
+        }
+    }
 }
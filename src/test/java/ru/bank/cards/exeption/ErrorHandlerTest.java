@@ -1,5 +1,6 @@
 package ru.bank.cards.exeption;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +14,7 @@ import ru.bank.cards.exception.ApiError;
 import ru.bank.cards.exception.EntityException;
 import ru.bank.cards.exception.ErrorCode;
 import ru.bank.cards.exception.ErrorHandler;
+import ru.bank.cards.security.PasswordHashingBusyException;
 
 import java.lang.reflect.Method;
 import java.util.NoSuchElementException;
@@ -28,10 +30,12 @@ class ErrorHandlerTest {
     private ErrorHandler handler;
     @Mock
     private HttpServletRequest request;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
-        handler = new ErrorHandler();
+        meterRegistry = new SimpleMeterRegistry();
+        handler = new ErrorHandler(meterRegistry);
         request = mock(HttpServletRequest.class);
         when(request.getRequestURI()).thenReturn("/api/test");
     }
@@ -120,4 +124,25 @@ class ErrorHandlerTest {
         assertEquals("Ошибка сервера", response.getBody().getMessage());
         assertEquals("/api/test", response.getBody().getPath());
     }
-}
\ No newline at end of file
+
+    @Test
+    void handleBusy_withPasswordHashingBusyException_returns503WithRetryAfter() {
+        ResponseEntity<ApiError> response = handler.handleBusy(
+                new PasswordHashingBusyException("Сервис входа перегружен"), request);
+
+        assertEquals(503, response.getStatusCodeValue());
+        assertEquals("1", response.getHeaders().getFirst("Retry-After"));
+        assertEquals("Service Unavailable", response.getBody().getError());
+        assertEquals("/api/test", response.getBody().getPath());
+    }
+
+    @Test
+    void responses_areCountedByStatusAndError() {
+        handler.handleEntity(new EntityException(ErrorCode.NOT_ENOUGH_FUNDS, "Недостаточно средств"), request);
+        handler.handleEntity(new EntityException(ErrorCode.NOT_ENOUGH_FUNDS, "Недостаточно средств"), request);
+        handler.handleNotFound(new NoSuchElementException("нет"), request);
+
+        assertEquals(2, meterRegistry.get("api.errors").tags("status", "422", "error", "NOT_ENOUGH_FUNDS").counter().count());
+        assertEquals(1, meterRegistry.get("api.errors").tags("status", "404", "error", "Not Found").counter().count());
+    }
+}
@@ -0,0 +1,54 @@
+package ru.bank.cards.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.bank.cards.AbstractPostgresTest;
+import ru.bank.cards.repository.CardBatchRepository.NewCard;
+import ru.bank.cards.util.UuidV7;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Вставка пачки через unnest на реальной схеме: дубликаты номеров пропускаются без отката пачки.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(CardBatchRepository.class)
+class CardBatchRepositoryTest extends AbstractPostgresTest {
+
+    private static final UUID OWNER = UUID.fromString("b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00");
+
+    @Autowired
+    private CardBatchRepository batch;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private static NewCard card(String number) {
+        return new NewCard(UuidV7.next(), number, number.substring(number.length() - 4), OWNER,
+                LocalDate.now().plusYears(2), new BigDecimal("12.50"));
+    }
+
+    @Test
+    void insertSkippingDuplicates_returnsOnlyInsertedNumbers() {
+        Set<String> inserted = batch.insertSkippingDuplicates(List.of(
+                card("5100000000000001"), card("5100000000000002"), card("5100000000000001")));
+        Set<String> again = batch.insertSkippingDuplicates(List.of(card("5100000000000002"), card("5100000000000003")));
+
+        assertThat(inserted).containsExactlyInAnyOrder("5100000000000001", "5100000000000002");
+        assertThat(again).containsExactly("5100000000000003");
+        assertThat(jdbc.queryForObject("SELECT balance FROM card WHERE number = '5100000000000001'", BigDecimal.class))
+                .isEqualByComparingTo("12.50");
+        assertThat(jdbc.queryForObject("SELECT status FROM card WHERE number = '5100000000000003'", String.class))
+                .isEqualTo("ACTIVE");
+    }
+}
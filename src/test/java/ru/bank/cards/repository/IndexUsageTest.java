@@ -0,0 +1,104 @@
+package ru.bank.cards.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.bank.cards.AbstractPostgresTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет через EXPLAIN, что планировщик выбирает индексы из миграций.
+ * Таблицы в тесте маленькие, поэтому последовательное сканирование отключается на время транзакции.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class IndexUsageTest extends AbstractPostgresTest {
+
+    private static final String OWNER = "b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00";
+    private static final String CARD = "10000000-0000-0000-0000-000000000001";
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void disableSeqScan() {
+        jdbc.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbc.queryForList("EXPLAIN " + sql, String.class));
+    }
+
+    @Test
+    void ownerAndStatusListing_usesOwnerStatusIndex() {
+        assertThat(explain("SELECT * FROM card WHERE owner_id = '" + OWNER + "' AND status IN ('ACTIVE')"))
+                .contains("idx_card_owner_status");
+    }
+
+    @Test
+    void ownerListing_usesOwnerStatusIndexPrefix() {
+        assertThat(explain("SELECT * FROM card WHERE owner_id = '" + OWNER + "'"))
+                .contains("idx_card_owner_status");
+    }
+
+    @Test
+    void last4Search_usesOwnerPanLast4Index() {
+        assertThat(explain("SELECT * FROM card WHERE owner_id = '" + OWNER + "' AND pan_last4 = '3333'"))
+                .contains("idx_card_owner_pan_last4");
+    }
+
+    @Test
+    void pendingBlockQueue_usesPartialIndex() {
+        assertThat(explain("SELECT * FROM card WHERE status IN ('PENDING_BLOCK')"))
+                .contains("idx_card_pending_block_requested");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM pg_indexes WHERE indexname = 'idx_card_pending_block'",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void transferHistory_usesFromCardKeysetIndex() {
+        assertThat(explain("SELECT * FROM transfer WHERE from_card_id = '" + CARD + "' ORDER BY created_at DESC, id DESC LIMIT 20"))
+                .contains("idx_transfer_from_card_created_id");
+    }
+
+    @Test
+    void ownerTransferHistoryPage_usesFromCardKeysetIndex() {
+        assertThat(explain("""
+                SELECT t.* FROM transfer t JOIN card c ON c.id = t.from_card_id
+                WHERE c.owner_id = '%s'
+                  AND (t.created_at < '2024-05-01' OR (t.created_at = '2024-05-01' AND t.id < '%s'))
+                ORDER BY t.created_at DESC, t.id DESC LIMIT 21
+                """.formatted(OWNER, CARD)))
+                .contains("idx_transfer_from_card_created_id");
+        assertThat(jdbc.queryForObject("SELECT count(*) FROM pg_indexes WHERE indexname = 'idx_transfer_from_card_created'",
+                Integer.class)).isZero();
+    }
+
+    @Test
+    void transferExport_usesCreatedIndex() {
+        assertThat(explain("SELECT * FROM transfer WHERE created_at >= '2024-05-01' AND created_at < '2024-05-02' ORDER BY created_at, id"))
+                .contains("idx_transfer_created");
+    }
+
+    @Test
+    void ledgerTail_usesCardTxIndex() {
+        assertThat(explain("SELECT sum(amount) FROM ledger_entry WHERE card_id = '" + CARD + "' AND tx_id >= '0'::xid8"))
+                .contains("idx_ledger_entry_card_tx");
+    }
+
+    @Test
+    void blockAutoApprove_usesPendingRequestedIndex() {
+        assertThat(explain("SELECT id FROM card WHERE status = 'PENDING_BLOCK' AND block_requested_at <= now() ORDER BY block_requested_at LIMIT 1000"))
+                .contains("idx_card_pending_block_requested");
+    }
+
+    @Test
+    void expirySweep_usesNotExpiredPartialIndex() {
+        assertThat(explain("SELECT id FROM card WHERE expires_at < current_date AND status <> 'EXPIRED' ORDER BY expires_at LIMIT 1000"))
+                .contains("idx_card_expires_at_not_expired");
+    }
+}
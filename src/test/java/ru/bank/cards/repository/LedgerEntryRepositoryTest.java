@@ -0,0 +1,188 @@
+package ru.bank.cards.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.AbstractPostgresTest;
+import ru.bank.cards.service.LedgerRollupJob;
+import ru.bank.cards.util.UuidV7;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Журнал проводок на реальной схеме: свёртка не меняет текущий баланс и не трогает проводки
+ * незавершённых транзакций, триггер запрещает изменение и удаление проводок.
+ * <p>
+ * Тесты работают вне транзакции теста: незавершённая транзакция держится на отдельном соединении,
+ * а проводки нельзя откатить удалением, поэтому каждый тест заводит свои карты.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(LedgerRollupJob.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class LedgerEntryRepositoryTest extends AbstractPostgresTest {
+
+    private static final String OWNER = "b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00";
+
+    @Autowired
+    private LedgerEntryRepository ledger;
+    @Autowired
+    private CardRepository cards;
+    @Autowired
+    private LedgerRollupJob rollupJob;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void rollUp_keepsCurrentBalanceAndMovesCommittedEntriesIntoSnapshot() {
+        UUID a = card("100.00");
+        UUID b = card("0.00");
+        tx.executeWithoutResult(s -> {
+            post(jdbc, a, b, "30.00");
+            post(jdbc, b, a, "5.00");
+        });
+
+        assertThat(current(a)).isEqualByComparingTo("75.00");
+        assertThat(current(b)).isEqualByComparingTo("25.00");
+
+        assertThat(rollupJob.rollUp()).isGreaterThanOrEqualTo(2);
+
+        assertThat(snapshot(a)).isEqualByComparingTo("75.00");
+        assertThat(snapshot(b)).isEqualByComparingTo("25.00");
+        assertThat(current(a)).isEqualByComparingTo("75.00");
+        assertThat(current(b)).isEqualByComparingTo("25.00");
+        assertThat(cards.findById(a).orElseThrow().getBalance()).isEqualByComparingTo("75.00");
+        assertThat(jdbc.queryForObject(
+                "SELECT count(*) FROM ledger_entry e JOIN card c ON c.id = e.card_id WHERE c.id = ? AND e.tx_id >= c.ledger_xid",
+                Integer.class, a)).isZero();
+    }
+
+    @Test
+    void rollUp_neverFoldsEntriesOfInFlightTransaction() throws SQLException {
+        UUID a = card("100.00");
+        UUID b = card("0.00");
+
+        try (Connection inFlight = dataSource.getConnection()) {
+            inFlight.setAutoCommit(false);
+            post(inFlight, a, b, "40.00");
+            // Более поздняя транзакция коммитится раньше: её проводки тоже ждут, пока не завершится первая.
+            tx.executeWithoutResult(s -> post(jdbc, a, b, "10.00"));
+
+            rollupJob.rollUp();
+
+            assertThat(snapshot(a)).isEqualByComparingTo("100.00");
+            assertThat(snapshot(b)).isEqualByComparingTo("0.00");
+            assertThat(current(a)).isEqualByComparingTo("90.00");
+            assertThat(current(b)).isEqualByComparingTo("10.00");
+
+            inFlight.commit();
+        }
+
+        assertThat(current(a)).isEqualByComparingTo("50.00");
+        assertThat(current(b)).isEqualByComparingTo("50.00");
+
+        rollupJob.rollUp();
+
+        assertThat(snapshot(a)).isEqualByComparingTo("50.00");
+        assertThat(snapshot(b)).isEqualByComparingTo("50.00");
+        assertThat(current(a)).isEqualByComparingTo("50.00");
+    }
+
+    @Test
+    void ledgerEntries_cannotBeUpdatedOrDeleted() {
+        UUID a = card("100.00");
+        UUID b = card("0.00");
+        tx.executeWithoutResult(s -> post(jdbc, a, b, "30.00"));
+
+        assertThatThrownBy(() -> jdbc.update("UPDATE ledger_entry SET amount = 0 WHERE card_id = ?", a))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("append-only");
+        assertThatThrownBy(() -> jdbc.update("DELETE FROM ledger_entry WHERE card_id = ?", a))
+                .isInstanceOf(DataAccessException.class)
+                .hasMessageContaining("append-only");
+        assertThat(current(a)).isEqualByComparingTo("70.00");
+    }
+
+    private UUID card(String balance) {
+        UUID id = UuidV7.next();
+        String number = "9" + String.format("%018d", ThreadLocalRandom.current().nextLong(1_000_000_000_000_000_000L));
+        jdbc.update("""
+                INSERT INTO card (id, number, pan_last4, owner_id, expires_at, status, balance)
+                VALUES (?, ?, ?, ?::uuid, current_date + 365, 'ACTIVE', ?)
+                """, id, number, number.substring(number.length() - 4), OWNER, new BigDecimal(balance));
+        return id;
+    }
+
+    /**
+     * Перевод и две его проводки, как их пишет TransferService.
+     */
+    private static void post(JdbcTemplate jdbc, UUID from, UUID to, String amount) {
+        UUID transfer = UuidV7.next();
+        BigDecimal value = new BigDecimal(amount);
+        jdbc.update("INSERT INTO transfer (id, from_card_id, to_card_id, amount, status) VALUES (?, ?, ?, ?, 'COMPLETED')",
+                transfer, from, to, value);
+        jdbc.update("INSERT INTO ledger_entry (id, card_id, transfer_id, amount) VALUES (?, ?, ?, ?), (?, ?, ?, ?)",
+                UuidV7.next(), from, transfer, value.negate(), UuidV7.next(), to, transfer, value);
+    }
+
+    private static void post(Connection connection, UUID from, UUID to, String amount) throws SQLException {
+        UUID transfer = UuidV7.next();
+        BigDecimal value = new BigDecimal(amount);
+        try (PreparedStatement st = connection.prepareStatement(
+                "INSERT INTO transfer (id, from_card_id, to_card_id, amount, status) VALUES (?, ?, ?, ?, 'COMPLETED')")) {
+            st.setObject(1, transfer);
+            st.setObject(2, from);
+            st.setObject(3, to);
+            st.setBigDecimal(4, value);
+            st.executeUpdate();
+        }
+        try (PreparedStatement st = connection.prepareStatement(
+                "INSERT INTO ledger_entry (id, card_id, transfer_id, amount) VALUES (?, ?, ?, ?)")) {
+            for (Object[] row : List.of(new Object[]{from, value.negate()}, new Object[]{to, value})) {
+                st.setObject(1, UuidV7.next());
+                st.setObject(2, row[0]);
+                st.setObject(3, transfer);
+                st.setBigDecimal(4, (BigDecimal) row[1]);
+                st.executeUpdate();
+            }
+        }
+    }
+
+    private BigDecimal snapshot(UUID card) {
+        return jdbc.queryForObject("SELECT balance FROM card WHERE id = ?", BigDecimal.class, card);
+    }
+
+    private BigDecimal current(UUID card) {
+        return ledger.currentBalances(List.of(card)).get(0).getBalance();
+    }
+}
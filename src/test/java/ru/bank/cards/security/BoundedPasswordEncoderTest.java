@@ -0,0 +1,88 @@
+package ru.bank.cards.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedPasswordEncoderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void encodeAndMatches_runOnPoolAndAreTimed() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 1, 4, meterRegistry)) {
+            String hash = encoder.encode("secret");
+
+            assertThat(hash).startsWith("$2a$04$");
+            assertThat(encoder.matches("secret", hash)).isTrue();
+            assertThat(encoder.matches("other", hash)).isFalse();
+            assertThat(meterRegistry.get("password.hash").tag("operation", "encode").timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("password.hash").tag("operation", "matches").timer().count()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void upgradeEncoding_whenCostDiffers() {
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 4, meterRegistry)) {
+            assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret"))).isTrue();
+            assertThat(encoder.upgradeEncoding(encoder.encode("secret"))).isFalse();
+            assertThat(encoder.upgradeEncoding("plain")).isFalse();
+            assertThat(encoder.upgradeEncoding(null)).isFalse();
+        }
+    }
+
+    @Test
+    void saturatedPool_rejectsImmediately() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PasswordEncoder slow = mock(PasswordEncoder.class);
+        when(slow.matches(any(), any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(slow, 4, 1, 1, meterRegistry)) {
+            CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> encoder.matches("a", "h"));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+            CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(() -> encoder.matches("b", "h"));
+            while (meterRegistry.get("password.hash.queue").gauge().value() < 1) Thread.onSpinWait();
+
+            assertThatThrownBy(() -> encoder.matches("c", "h")).isInstanceOf(PasswordHashingBusyException.class);
+            assertThat(meterRegistry.get("password.hash.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void delegateFailure_isRethrownAsIs() {
+        PasswordEncoder failing = mock(PasswordEncoder.class);
+        when(failing.encode(any())).thenThrow(new IllegalArgumentException("слишком длинный пароль"));
+
+        try (BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(failing, 4, 1, 1, meterRegistry)) {
+            assertThatThrownBy(() -> encoder.encode("x"))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("слишком длинный пароль");
+        }
+    }
+}
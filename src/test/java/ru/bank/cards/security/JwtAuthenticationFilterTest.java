@@ -0,0 +1,190 @@
+package ru.bank.cards.security;
+
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import ru.bank.cards.entity.Role;
+import ru.bank.cards.entity.User;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "u8rTn6y5Wl+E4z1ZkF3LQxH6Pd2Q9J4V6Y7bN1Qe3wM=";
+
+    private JwtService jwtService;
+    private UserDetailsService userDetailsService;
+    private UserDetailsCache cache;
+    private FilterChain chain;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        jwtService = new JwtService(SECRET, JwtService.DEFAULT_KID, "", 60_000L);
+        userDetailsService = mock(UserDetailsService.class);
+        cache = new UserDetailsCache(100, 60);
+        chain = mock(FilterChain.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void parse_readsClaimsOnce() {
+        User user = user(Role.ADMIN);
+
+        ParsedJwt token = jwtService.parse(jwtService.generateToken(user)).orElseThrow();
+
+        assertThat(token.email()).isEqualTo(user.getEmail());
+        assertThat(token.userId()).isEqualTo(user.getId());
+        assertThat(token.role()).isEqualTo(Role.ADMIN);
+        assertThat(token.hasIdentity()).isTrue();
+    }
+
+    @Test
+    void parse_invalidOrExpiredToken_isEmpty() {
+        String expired = new JwtService(SECRET, JwtService.DEFAULT_KID, "", -1_000L).generateToken(user(Role.USER));
+
+        assertThat(jwtService.parse(expired)).isEmpty();
+        assertThat(jwtService.parse("not-a-jwt")).isEmpty();
+    }
+
+    @Test
+    void parse_acceptsTokensOfRotatedKeys() {
+        String rotated = "c2Vjb25kLXNlY3JldC1rZXktZm9yLWhzMjU2LXNpZ25pbmctMTIzNA==";
+        String oldToken = jwtService.generateToken(user(Role.USER));
+        JwtService afterRotation = new JwtService(rotated, "2025-02", "default=" + SECRET, 60_000L);
+        JwtService otherKeysOnly = new JwtService(rotated, "2025-02", "", 60_000L);
+
+        assertThat(afterRotation.parse(oldToken)).isPresent();
+        assertThat(afterRotation.parse(afterRotation.generateToken(user(Role.USER)))).isPresent();
+        assertThat(otherKeysOnly.parse(oldToken)).isEmpty();
+        assertThat(jwtService.parse(afterRotation.generateToken(user(Role.USER)))).isEmpty();
+    }
+
+    @Test
+    void parse_tokenWithoutKid_usesDefaultKey() {
+        String legacy = Jwts.builder()
+                .setSubject("user@mail.com")
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThat(jwtService.parse(legacy)).map(ParsedJwt::email).contains("user@mail.com");
+    }
+
+    @Test
+    void tokenWithClaims_authenticatesWithoutUserLookup() throws Exception {
+        String jwt = jwtService.generateToken(user(Role.ADMIN));
+
+        filter(true).doFilter(request(jwt), new MockHttpServletResponse(), chain);
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        assertThat(auth).isNotNull();
+        assertThat(auth.getName()).isEqualTo("user@mail.com");
+        assertThat(auth.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        verifyNoInteractions(userDetailsService);
+        verify(chain).doFilter(any(), any());
+        assertThat(meterRegistry.get("jwt.authentication").tag("result", "claims").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void legacyToken_loadsUserOnceThroughCache() throws Exception {
+        User user = user(Role.USER);
+        when(userDetailsService.loadUserByUsername(user.getEmail())).thenReturn(user);
+        String jwt = jwtService.generateToken(user.getEmail());
+        JwtAuthenticationFilter filter = filter(true);
+
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo(user.getEmail());
+        verify(userDetailsService, times(1)).loadUserByUsername(user.getEmail());
+    }
+
+    @Test
+    void untrustedClaims_reloadUserAfterEviction() throws Exception {
+        User user = user(Role.USER);
+        when(userDetailsService.loadUserByUsername(user.getEmail())).thenReturn(user);
+        String jwt = jwtService.generateToken(user);
+        JwtAuthenticationFilter filter = filter(false);
+
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+        new UserCacheInvalidator(cache).evict(user);
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+
+        verify(userDetailsService, times(2)).loadUserByUsername(user.getEmail());
+    }
+
+    @Test
+    void emailChange_evictsEntryOfPreviousEmail() throws Exception {
+        User user = user(Role.ADMIN);
+        when(userDetailsService.loadUserByUsername(user.getEmail())).thenReturn(user);
+        String jwt = jwtService.generateToken(user);
+        JwtAuthenticationFilter filter = filter(false);
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+
+        User renamed = User.builder().id(user.getId()).email("new@mail.com").loadedEmail(user.getEmail()).role(Role.USER).build();
+        new UserCacheInvalidator(cache).evict(renamed);
+        doThrow(new UsernameNotFoundException("нет")).when(userDetailsService).loadUserByUsername(user.getEmail());
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request(jwt), new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verify(userDetailsService, times(2)).loadUserByUsername(user.getEmail());
+    }
+
+    @Test
+    void deletedUser_leavesRequestUnauthenticated() throws Exception {
+        when(userDetailsService.loadUserByUsername(any())).thenThrow(new UsernameNotFoundException("нет"));
+
+        filter(true).doFilter(request(jwtService.generateToken("gone@mail.com")), new MockHttpServletResponse(), chain);
+
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verify(chain).doFilter(any(), any());
+        assertThat(meterRegistry.get("jwt.authentication").tag("result", "unknown_user").timer().count()).isEqualTo(1);
+    }
+
+    private JwtAuthenticationFilter filter(boolean trustClaims) {
+        return new JwtAuthenticationFilter(jwtService, userDetailsService, cache, trustClaims, meterRegistry);
+    }
+
+    private static MockHttpServletRequest request(String jwt) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/cards");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        return request;
+    }
+
+    private static User user(Role role) {
+        return User.builder()
+                .id(UUID.randomUUID())
+                .email("user@mail.com")
+                .password("hash")
+                .fullName("Test User")
+                .role(role)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.bank.cards.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private final AtomicLong now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+    private FilterChain chain;
+    private SimpleMeterRegistry meterRegistry;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties properties = new RateLimitProperties(true, 1000, List.of(
+                new RateLimitProperties.Rule("auth", "/auth/**", RateLimitProperties.KeyBy.IP, 2, 0.5),
+                new RateLimitProperties.Rule("api", "/api/**", RateLimitProperties.KeyBy.USER, 3, 1)));
+        chain = mock(FilterChain.class);
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new RateLimitFilter(new RateLimiter(properties, now::get),
+                new ObjectMapper().registerModule(new JavaTimeModule()), meterRegistry);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void exhaustedBucket_answers429WithRetryAfterUntilRefilled() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThat(call("/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = call("/auth/login", "10.0.0.1");
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(rejected.getContentAsString()).contains("\"status\":429");
+        assertThat(call("/auth/login", "10.0.0.2").getStatus()).isEqualTo(200);
+        verify(chain, times(3)).doFilter(any(), any());
+        assertThat(meterRegistry.get("http.rate_limited").tag("rule", "auth").counter().count()).isEqualTo(1);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(call("/auth/login", "10.0.0.1").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void userRule_keysByAuthenticatedUserRatherThanIp() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "alice@mail.com", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        for (int i = 0; i < 3; i++) {
+            assertThat(call("/api/users/1/cards", "10.0.0." + i).getStatus()).isEqualTo(200);
+        }
+        assertThat(call("/api/users/1/cards", "10.0.0.9").getStatus()).isEqualTo(429);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                "bob@mail.com", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        assertThat(call("/api/users/2/cards", "10.0.0.9").getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void pathWithoutRule_isNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(call("/swagger-ui/index.html", "10.0.0.1").getStatus()).isEqualTo(200);
+        }
+        verify(chain, times(10)).doFilter(any(), any());
+    }
+
+    private MockHttpServletResponse call(String path, String ip) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(ip);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
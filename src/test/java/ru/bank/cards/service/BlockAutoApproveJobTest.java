@@ -0,0 +1,34 @@
+package ru.bank.cards.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.repository.CardRepository;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BlockAutoApproveJobTest {
+
+    @Test
+    void approve_processesChunksUntilQueueIsDrained() {
+        CardRepository cards = mock(CardRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(cards.approveBlocksRequestedBefore(any(), eq(100))).thenReturn(100, 100, 37);
+        BlockAutoApproveJob job = new BlockAutoApproveJob(cards, transactionManager, 300, 100);
+
+        Instant started = Instant.now();
+        int blocked = job.approve();
+
+        assertThat(blocked).isEqualTo(237);
+        verify(cards, times(3)).approveBlocksRequestedBefore(
+                argThat(before -> !before.isAfter(started.minusSeconds(300).plusSeconds(1))), eq(100));
+        verify(transactionManager, times(3)).commit(any());
+    }
+}
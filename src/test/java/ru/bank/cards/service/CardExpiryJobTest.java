@@ -0,0 +1,39 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.repository.CardRepository;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CardExpiryJobTest {
+
+    @Test
+    void expire_commitsEachChunkAndCountsProgress() {
+        CardRepository cards = mock(CardRepository.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        LocalDate today = LocalDate.of(2025, 3, 1);
+        when(cards.expireBefore(today, 500)).thenReturn(500, 500, 12);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(Instant.parse("2025-03-01T00:05:00Z"), ZoneOffset.UTC);
+        CardExpiryJob job = new CardExpiryJob(cards, transactionManager, meterRegistry, 500, clock);
+
+        int expired = job.expire();
+
+        assertThat(expired).isEqualTo(1012);
+        verify(cards, times(3)).expireBefore(eq(today), eq(500));
+        verify(transactionManager, times(3)).commit(any());
+        assertThat(meterRegistry.get("card.expiry.expired").counter().count()).isEqualTo(1012);
+    }
+}
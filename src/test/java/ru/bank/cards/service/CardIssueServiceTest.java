@@ -0,0 +1,144 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.dto.BulkIssueResponse;
+import ru.bank.cards.repository.CardBatchRepository;
+import ru.bank.cards.repository.CardBatchRepository.NewCard;
+import ru.bank.cards.repository.UserRepository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class CardIssueServiceTest {
+
+    private static final String FUTURE = LocalDate.now().plusYears(3).toString();
+
+    private CardBatchRepository batch;
+    private UserRepository users;
+    private PlatformTransactionManager transactionManager;
+    private final UUID owner = UUID.randomUUID();
+    private final Set<String> existingNumbers = new HashSet<>();
+    private final List<List<NewCard>> inserted = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        batch = mock(CardBatchRepository.class);
+        users = mock(UserRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(users.findExistingIds(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().filter(owner::equals).toList();
+        });
+        when(batch.insertSkippingDuplicates(anyList())).thenAnswer(inv -> {
+            List<NewCard> cards = inv.getArgument(0);
+            inserted.add(List.copyOf(cards));
+            Set<String> numbers = new HashSet<>();
+            for (NewCard c : cards) {
+                if (existingNumbers.add(c.number())) numbers.add(c.number());
+            }
+            return numbers;
+        });
+    }
+
+    private CardIssueService service(int chunkSize) {
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        return new CardIssueService(batch, users, Validation.buildDefaultValidatorFactory().getValidator(),
+                mapper, transactionManager, chunkSize, 100);
+    }
+
+    private static ByteArrayInputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void issue_ndjson_insertsInChunksAndCommitsEachChunk() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            text.append("{\"ownerId\":\"").append(owner).append("\",\"number\":\"4000 0000 0000 000").append(i)
+                    .append("\",\"expiresAt\":\"").append(FUTURE).append("\",\"balance\":10}\n");
+        }
+
+        BulkIssueResponse report = service(2).issue(body(text.toString()), CardIssueService.ImportFormat.NDJSON);
+
+        assertThat(report.getCreated()).isEqualTo(5);
+        assertThat(report.getFailed()).isZero();
+        assertThat(inserted).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(inserted.get(0).get(0).panLast4()).isEqualTo("0000");
+        verify(transactionManager, times(3)).commit(any());
+        verify(users, times(1)).findExistingIds(anyCollection());
+    }
+
+    @Test
+    void issue_csv_reportsInvalidRowsByLineAndKeepsValidOnes() throws Exception {
+        existingNumbers.add("4000000000000009");
+        String text = CardIssueService.CSV_HEADER + "\n"
+                + owner + ",4000000000000001," + FUTURE + ",5.00\n"
+                + owner + ",4000000000000002,2000-01-01,\n"
+                + UUID.randomUUID() + ",4000000000000003," + FUTURE + ",\n"
+                + owner + ",4000000000000009," + FUTURE + ",\n"
+                + owner + ",abc," + FUTURE + ",\n"
+                + "not-a-uuid,4000000000000004," + FUTURE + ",\n"
+                + owner + ",4000000000000001," + FUTURE + ",\n";
+
+        BulkIssueResponse report = service(100).issue(body(text), CardIssueService.ImportFormat.CSV);
+
+        assertThat(report.getCreated()).isEqualTo(1);
+        assertThat(report.getFailed()).isEqualTo(6);
+        assertThat(report.getErrors()).extracting(BulkIssueResponse.RowError::getLine)
+                .containsExactlyInAnyOrder(3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(report.getErrors()).allSatisfy(e -> assertThat(e.getMessage()).doesNotContain("4000000000000009"));
+        assertThat(inserted.get(0)).extracting(NewCard::number)
+                .containsExactly("4000000000000001", "4000000000000009", "4000000000000001");
+    }
+
+    @Test
+    void issue_whenChunkFailsInDatabase_reportsCommittedCardsAndFailedLines() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5; i++) {
+            text.append("{\"ownerId\":\"").append(owner).append("\",\"number\":\"4000 0000 0000 000").append(i)
+                    .append("\",\"expiresAt\":\"").append(FUTURE).append("\"}\n");
+        }
+        when(batch.insertSkippingDuplicates(anyList()))
+                .thenReturn(new HashSet<>(Set.of("4000 0000 0000 0000", "4000 0000 0000 0001")))
+                .thenThrow(new DataIntegrityViolationException("chunk", new SQLException("value too long")));
+
+        BulkIssueResponse report = service(2).issue(body(text.toString()), CardIssueService.ImportFormat.NDJSON);
+
+        assertThat(report.getCreated()).isEqualTo(2);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getFailedChunk()).isNotNull();
+        assertThat(report.getFailedChunk().getFirstLine()).isEqualTo(3);
+        assertThat(report.getFailedChunk().getLastLine()).isEqualTo(4);
+        assertThat(report.getFailedChunk().getMessage()).contains("value too long");
+        verify(batch, times(2)).insertSkippingDuplicates(anyList());
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    void issue_csvWithoutHeader_throwsIllegalArgument() {
+        String text = owner + ",4000000000000001," + FUTURE + ",\n";
+
+        assertThatThrownBy(() -> service(100).issue(body(text), CardIssueService.ImportFormat.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(batch);
+    }
+}
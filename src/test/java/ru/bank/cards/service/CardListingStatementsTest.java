@@ -0,0 +1,117 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import ru.bank.cards.AbstractPostgresTest;
+import ru.bank.cards.dto.CardResponse;
+import ru.bank.cards.dto.PageResponse;
+import ru.bank.cards.dto.SliceResponse;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Считает SQL-операторы листингов по статистике Hibernate: владельцы карт должны
+ * приходить тем же запросом, а не отдельным SELECT на каждую карту (N+1).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CardService.class, CardBalanceCache.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CardListingStatementsTest extends AbstractPostgresTest {
+
+    private static final UUID IVANOV = UUID.fromString("b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00");
+    private static final UUID IVANOV_CARD = UUID.fromString("10000000-0000-0000-0000-000000000001");
+
+    @Autowired
+    private CardService cardService;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void resetStatistics() {
+        entityManager.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void getAll_loadsOwnersInSameQuery() {
+        PageResponse<CardResponse> page = cardService.getAll(null, null, 0, 20);
+
+        assertThat(page.getContent()).hasSizeGreaterThan(5);
+        assertThat(page.getContent()).allSatisfy(c -> assertThat(c.getOwnerName()).isNotBlank());
+        // select + count (Spring Data пропускает count, если первая страница неполная)
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void scrollAll_runsSingleSelect() {
+        SliceResponse<CardResponse> slice = cardService.scrollAll(null, null, null, 20);
+
+        assertThat(slice.getContent()).hasSizeGreaterThan(5);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getUserCards_loadsOwnersInSameQuery() {
+        cardService.getUserCards(IVANOV, null, 0, 20);
+
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void searchBySixDigits_matchesWholeSuffixInSingleSelect() {
+        PageResponse<CardResponse> page = cardService.getUserCards(IVANOV, "223333", 0, 20);
+
+        assertThat(page.getContent()).extracting(CardResponse::getId).containsExactly(IVANOV_CARD);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(cardService.getUserCards(IVANOV, "123333", 0, 20).getContent()).isEmpty();
+        assertThat(cardService.scrollUserCards(IVANOV, "2 3333", null, 20).getContent())
+                .extracting(CardResponse::getId).containsExactly(IVANOV_CARD);
+        assertThat(cardService.scrollUserCards(IVANOV, "123333", null, 20).getContent()).isEmpty();
+    }
+
+    @Test
+    void getUserCard_runsSingleSelect() {
+        CardResponse card = cardService.getUserCard(IVANOV, IVANOV_CARD);
+
+        assertThat(card.getOwnerName()).isNotBlank();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getUserCardETag_runsSingleSelectAndHidesOtherUsersCards() {
+        assertThat(cardService.getUserCardETag(IVANOV, IVANOV_CARD)).isPresent();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        assertThat(cardService.getUserCardETag(UUID.randomUUID(), IVANOV_CARD)).isEmpty();
+    }
+
+    @Test
+    void getUserCardETag_changesWithOwnerName() {
+        String before = cardService.getUserCardETag(IVANOV, IVANOV_CARD).orElseThrow();
+
+        entityManager.createNativeQuery("UPDATE app_user SET full_name = 'Иван Петров' WHERE id = :id")
+                .setParameter("id", IVANOV)
+                .executeUpdate();
+
+        assertThat(cardService.getUserCardETag(IVANOV, IVANOV_CARD)).isPresent().get().isNotEqualTo(before);
+    }
+}
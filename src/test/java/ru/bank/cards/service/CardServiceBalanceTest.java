@@ -0,0 +1,109 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.bank.cards.dto.BalanceResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class CardServiceBalanceTest {
+
+    private CardRepository cardRepository;
+    private CardService cardService;
+    private SimpleMeterRegistry meterRegistry;
+    private final UUID ownerId = UUID.randomUUID();
+    private final UUID cardId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cardService = new CardService(cardRepository, mock(UserRepository.class), new CardBalanceCache(meterRegistry, 100, 60));
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card("100.00")));
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void getUserCardBalance_secondReadIsServedFromCache() {
+        BalanceResponse first = cardService.getUserCardBalance(ownerId, cardId);
+        BalanceResponse second = cardService.getUserCardBalance(ownerId, cardId);
+
+        assertThat(second.getBalance()).isEqualByComparingTo("100.00");
+        assertThat(second.getMaskedNumber()).isEqualTo(first.getMaskedNumber()).isEqualTo("**** **** **** 4444");
+        verify(cardRepository, times(1)).findById(cardId);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "card.balance").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void getUserCardBalance_cacheMissReadsFromPrimary() {
+        AtomicBoolean primary = new AtomicBoolean();
+        when(cardRepository.findById(cardId)).thenAnswer(inv -> {
+            primary.set(ReadYourWrites.primaryRequired());
+            return Optional.of(card("100.00"));
+        });
+
+        cardService.getUserCardBalance(ownerId, cardId);
+
+        assertThat(primary).isTrue();
+        assertThat(ReadYourWrites.primaryRequired()).isFalse();
+    }
+
+    @Test
+    void getUserCardBalance_cachedCardOfOtherUser_notFound() {
+        cardService.getUserCardBalance(ownerId, cardId);
+
+        assertThatThrownBy(() -> cardService.getUserCardBalance(UUID.randomUUID(), cardId))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    @Test
+    void updateStatus_evictsBalanceOnlyAfterCommit() {
+        cardService.getUserCardBalance(ownerId, cardId);
+        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card("40.00")));
+        TransactionSynchronizationManager.initSynchronization();
+
+        cardService.updateStatus(cardId, CardStatus.BLOCKED);
+        assertThat(cardService.getUserCardBalance(ownerId, cardId).getBalance()).isEqualByComparingTo("100.00");
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertThat(cardService.getUserCardBalance(ownerId, cardId).getBalance()).isEqualByComparingTo("40.00");
+    }
+
+    private Card card(String balance) {
+        return Card.builder()
+                .id(cardId)
+                .owner(User.builder().id(ownerId).fullName("Owner").build())
+                .cardNumber("1111 2222 3333 4444")
+                .expiresAt(LocalDate.now().plusYears(1))
+                .balance(new BigDecimal(balance))
+                .status(CardStatus.ACTIVE)
+                .build();
+    }
+}
@@ -34,7 +34,7 @@ class CardServiceGetAllTest {
     void setUp() {
         cardRepository = mock(CardRepository.class);
         UserRepository userRepository = mock(UserRepository.class);
-        cardService = new CardService(cardRepository, userRepository);
+        cardService = new CardService(cardRepository, userRepository, mock(CardBalanceCache.class));
     }
 
     @Test
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import ru.bank.cards.dto.BulkBlockResponse;
 import ru.bank.cards.dto.CardResponse;
 import ru.bank.cards.entity.Card;
 import ru.bank.cards.entity.CardStatus;
@@ -14,7 +15,9 @@ import ru.bank.cards.repository.UserRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,7 +35,7 @@ class CardServiceRequestBlockTest {
     void setUp() {
         cardRepository = mock(CardRepository.class);
         UserRepository userRepository = mock(UserRepository.class);
-        cardService = new CardService(cardRepository, userRepository);
+        cardService = new CardService(cardRepository, userRepository, mock(CardBalanceCache.class));
     }
 
     @Test
@@ -63,6 +66,7 @@ class CardServiceRequestBlockTest {
         verify(cardRepository, times(1)).save(captor.capture());
         Card saved = captor.getValue();
         assertThat(saved.getStatus()).isEqualTo(CardStatus.PENDING_BLOCK);
+        assertThat(saved.getBlockRequestedAt()).isNotNull();
 
         assertThat(resp).isNotNull();
         assertThat(resp.getStatus()).isEqualTo(CardStatus.PENDING_BLOCK);
@@ -91,4 +95,26 @@ class CardServiceRequestBlockTest {
                 .isInstanceOf(EntityNotFoundException.class)
                 .hasMessageContaining("принадлежит другому пользователю");
     }
+
+    @Test
+    void approveBlocks_selectedCards_singleUpdate() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        when(cardRepository.approveBlocks(Set.of(first, second))).thenReturn(2);
+
+        BulkBlockResponse resp = cardService.approveBlocks(List.of(first, second, first));
+
+        assertThat(resp.getBlocked()).isEqualTo(2);
+        verify(cardRepository, never()).approveAllBlocks();
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void approveBlocks_withoutIds_approvesAllPending() {
+        when(cardRepository.approveAllBlocks()).thenReturn(1500);
+
+        assertThat(cardService.approveBlocks(null).getBlocked()).isEqualTo(1500);
+        assertThat(cardService.approveBlocks(List.of()).getBlocked()).isEqualTo(1500);
+        verify(cardRepository, never()).approveBlocks(anyCollection());
+    }
 }
@@ -0,0 +1,127 @@
+package ru.bank.cards.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import ru.bank.cards.dto.CardResponse;
+import ru.bank.cards.dto.SliceResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.UserRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class CardServiceScrollTest {
+
+    private CardRepository cardRepository;
+    private CardService cardService;
+    private final User owner = User.builder().id(UUID.randomUUID()).fullName("U").build();
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        cardService = new CardService(cardRepository, mock(UserRepository.class), mock(CardBalanceCache.class));
+    }
+
+    private Card card() {
+        return Card.builder()
+                .id(UUID.randomUUID())
+                .owner(owner)
+                .cardNumber("4000 1111 2222 3333")
+                .expiresAt(LocalDate.now().plusYears(1))
+                .balance(BigDecimal.ZERO)
+                .status(CardStatus.ACTIVE)
+                .build();
+    }
+
+    @Test
+    void scrollAll_firstPage_returnsCursorOfLastElement() {
+        List<Card> page = List.of(card(), card());
+        when(cardRepository.findAllByOrderByIdAsc(any(ScrollPosition.class), eq(Limit.of(2))))
+                .thenReturn(Window.from(page, i -> ScrollPosition.offset(i), true));
+
+        SliceResponse<CardResponse> resp = cardService.scrollAll(null, null, null, 2);
+
+        assertThat(resp.getContent()).hasSize(2);
+        assertThat(resp.isHasNext()).isTrue();
+        assertThat(resp.getNextCursor()).isNotBlank();
+        ArgumentCaptor<ScrollPosition> position = ArgumentCaptor.forClass(ScrollPosition.class);
+        verify(cardRepository).findAllByOrderByIdAsc(position.capture(), eq(Limit.of(2)));
+        assertThat(position.getValue().isInitial()).isTrue();
+        verify(cardRepository, never()).count();
+    }
+
+    @Test
+    void scrollAll_withCursor_continuesAfterDecodedId() {
+        Card last = card();
+        when(cardRepository.findByStatusInOrderByIdAsc(eq(List.of(CardStatus.ACTIVE)), any(ScrollPosition.class), any(Limit.class)))
+                .thenReturn(Window.from(List.of(last), i -> ScrollPosition.offset(i), true))
+                .thenReturn(Window.from(List.of(), i -> ScrollPosition.offset(i), false));
+
+        String cursor = cardService.scrollAll(null, CardStatus.ACTIVE, null, 1).getNextCursor();
+        SliceResponse<CardResponse> second = cardService.scrollAll(null, CardStatus.ACTIVE, cursor, 1);
+
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(second.getNextCursor()).isNull();
+        ArgumentCaptor<ScrollPosition> position = ArgumentCaptor.forClass(ScrollPosition.class);
+        verify(cardRepository, times(2)).findByStatusInOrderByIdAsc(any(), position.capture(), any(Limit.class));
+        KeysetScrollPosition keyset = (KeysetScrollPosition) position.getAllValues().get(1);
+        assertThat(keyset.getKeys()).containsEntry("id", last.getId());
+    }
+
+    @Test
+    void scrollUserCards_searchUsesPanLast4() {
+        when(cardRepository.findByOwner_IdAndPanLast4OrderByIdAsc(eq(owner.getId()), eq("3333"), any(ScrollPosition.class), any(Limit.class)))
+                .thenReturn(Window.from(List.of(card()), i -> ScrollPosition.offset(i), false));
+
+        SliceResponse<CardResponse> resp = cardService.scrollUserCards(owner.getId(), "3333", null, 20);
+
+        assertThat(resp.getContent()).hasSize(1);
+        assertThat(resp.getNextCursor()).isNull();
+    }
+
+    @Test
+    void scrollUserCards_searchWithoutDigits_returnsEmptySlice() {
+        SliceResponse<CardResponse> resp = cardService.scrollUserCards(owner.getId(), "abc", null, 20);
+
+        assertThat(resp.getContent()).isEmpty();
+        assertThat(resp.isHasNext()).isFalse();
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void scrollUserCards_longSearch_fetchesOneExtraRowForNextCursor() {
+        Card first = card();
+        Card second = card();
+        when(cardRepository.findByOwnerAndNumberSuffixAfter(eq(owner.getId()), eq("3333"), eq("%23333"), any(UUID.class), eq(Limit.of(2))))
+                .thenReturn(List.of(first, second));
+
+        SliceResponse<CardResponse> resp = cardService.scrollUserCards(owner.getId(), "23333", null, 1);
+
+        assertThat(resp.getContent()).extracting(CardResponse::getId).containsExactly(first.getId());
+        assertThat(resp.isHasNext()).isTrue();
+        assertThat(resp.getNextCursor()).isNotNull();
+        verify(cardRepository).findByOwnerAndNumberSuffixAfter(owner.getId(), "3333", "%23333", new UUID(0, 0), Limit.of(2));
+    }
+
+    @Test
+    void scrollAll_withBrokenCursor_throwsIllegalArgument() {
+        assertThatThrownBy(() -> cardService.scrollAll(null, null, "not-a-cursor", 20))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -36,6 +36,8 @@ class CardServiceTest {
     private CardRepository cardRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private CardBalanceCache balanceCache;
     @InjectMocks
     private CardService cardService;
 
@@ -119,23 +121,61 @@ class CardServiceTest {
     }
 
     @Test
-    void getUserCards_searchUsesEndingWith() {
+    void getUserCards_searchUsesPanLast4() {
         UUID userId = UUID.randomUUID();
         Pageable pageable = PageRequest.of(0, 20);
         User owner = sampleUser(userId);
 
         List<Card> cards = List.of(
-                sampleCard(UUID.randomUUID(), owner, "1111222233334444", BigDecimal.ZERO, CardStatus.ACTIVE),
-                sampleCard(UUID.randomUUID(), owner, "5555666677778888", BigDecimal.ZERO, CardStatus.ACTIVE)
+                sampleCard(UUID.randomUUID(), owner, "1111 2222 3333 4444", BigDecimal.ZERO, CardStatus.ACTIVE),
+                sampleCard(UUID.randomUUID(), owner, "5555 6666 7777 4444", BigDecimal.ZERO, CardStatus.ACTIVE)
         );
         Page<Card> page = new PageImpl<>(cards, pageable, cards.size());
-        when(cardRepository.findByOwner_IdAndCardNumberEndingWith(eq(userId), anyString(), any(Pageable.class))).thenReturn(page);
+        when(cardRepository.findByOwner_IdAndPanLast4(eq(userId), eq("4444"), any(Pageable.class))).thenReturn(page);
 
-        PageResponse<CardResponse> resp = cardService.getUserCards(userId, "4444", 0, 20);
+        PageResponse<CardResponse> resp = cardService.getUserCards(userId, "44 44", 0, 20);
 
         assertThat(resp).isNotNull();
         assertThat(resp.getContent()).hasSize(2);
         assertThat(resp.getTotalElements()).isEqualTo(2);
+        verify(cardRepository, never()).findByOwner_Id(any(), any());
+    }
+
+    @Test
+    void getUserCards_shortSearchUsesPanLast4Suffix() {
+        UUID userId = UUID.randomUUID();
+        Pageable pageable = PageRequest.of(0, 20);
+        when(cardRepository.findByOwner_IdAndPanLast4EndingWith(eq(userId), eq("44"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        PageResponse<CardResponse> resp = cardService.getUserCards(userId, "44", 0, 20);
+
+        assertThat(resp.getContent()).isEmpty();
+        verify(cardRepository).findByOwner_IdAndPanLast4EndingWith(eq(userId), eq("44"), any(Pageable.class));
+    }
+
+    @Test
+    void getUserCards_searchWithoutDigits_returnsEmptyPage() {
+        UUID userId = UUID.randomUUID();
+
+        PageResponse<CardResponse> resp = cardService.getUserCards(userId, "abcd", 0, 20);
+
+        assertThat(resp.getContent()).isEmpty();
+        assertThat(resp.getTotalElements()).isZero();
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void getUserCards_longSearchMatchesWholeSuffix() {
+        UUID userId = UUID.randomUUID();
+        Pageable pageable = PageRequest.of(0, 20);
+        when(cardRepository.findByOwnerAndNumberSuffix(eq(userId), eq("3333"), eq("%23333"), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+
+        cardService.getUserCards(userId, "2 3333", 0, 20);
+
+        verify(cardRepository).findByOwnerAndNumberSuffix(eq(userId), eq("3333"), eq("%23333"), any(Pageable.class));
+        verify(cardRepository, never()).findByOwner_IdAndPanLast4(any(), any(), any());
     }
 
     @Test
@@ -145,7 +185,7 @@ class CardServiceTest {
         User other = sampleUser(UUID.randomUUID());
         Card card = sampleCard(cardId, other, "9999000011112222", BigDecimal.ZERO, CardStatus.ACTIVE);
 
-        when(cardRepository.findById(cardId)).thenReturn(Optional.of(card));
+        when(cardRepository.findWithOwnerById(cardId)).thenReturn(Optional.of(card));
 
         assertThatThrownBy(() -> cardService.getUserCard(userId, cardId))
                 .isInstanceOf(EntityNotFoundException.class)
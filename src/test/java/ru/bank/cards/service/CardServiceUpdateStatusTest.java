@@ -29,7 +29,7 @@ class CardServiceUpdateStatusTest {
     void setUp() {
         cardRepository = mock(CardRepository.class);
         UserRepository userRepository = mock(UserRepository.class);
-        cardService = new CardService(cardRepository, userRepository);
+        cardService = new CardService(cardRepository, userRepository, mock(CardBalanceCache.class));
     }
 
     @Test
@@ -56,4 +56,20 @@ class CustomUserDetailsServiceTest {
         assertThrows(UsernameNotFoundException.class,
                 () -> service.loadUserByUsername("missing@example.com"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updatePassword_shouldSaveRehashedPassword() {
+        User user = User.builder()
+                .email("test@example.com")
+                .password("old-hash")
+                .role(Role.USER)
+                .build();
+        when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
+
+        UserDetails updated = service.updatePassword(service.loadUserByUsername("test@example.com"), "new-hash");
+
+        assertEquals("new-hash", updated.getPassword());
+        assertEquals("new-hash", user.getPassword());
+        verify(userRepository).save(user);
+    }
+}
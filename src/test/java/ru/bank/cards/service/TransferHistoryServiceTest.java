@@ -0,0 +1,150 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import ru.bank.cards.dto.SliceResponse;
+import ru.bank.cards.dto.TransferExportRow;
+import ru.bank.cards.dto.TransferResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.Transfer;
+import ru.bank.cards.entity.TransferStatus;
+import ru.bank.cards.repository.TransferRepository;
+import ru.bank.cards.util.CursorUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferHistoryServiceTest {
+
+    private static final Instant FROM = Instant.parse("2024-05-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-05-02T00:00:00Z");
+
+    private TransferRepository transferRepository;
+    private TransferHistoryService service;
+    private final UUID userId = UUID.randomUUID();
+    private final Card from = Card.builder().id(UUID.randomUUID()).cardNumber("4000 1111 2222 3333").build();
+    private final Card to = Card.builder().id(UUID.randomUUID()).cardNumber("4000 1111 2222 4444").build();
+
+    @BeforeEach
+    void setUp() {
+        transferRepository = mock(TransferRepository.class);
+        ObjectMapper mapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new TransferHistoryService(transferRepository, mapper);
+    }
+
+    private Transfer transfer(Instant at) {
+        return Transfer.builder()
+                .id(UUID.randomUUID())
+                .fromCard(from)
+                .toCard(to)
+                .amount(new BigDecimal("10.00"))
+                .createdAt(at)
+                .status(TransferStatus.COMPLETED)
+                .build();
+    }
+
+    private TransferExportRow row(String amount) {
+        return new TransferExportRow(UUID.randomUUID(), FROM.plusSeconds(60), from.getId(), from.getCardNumber(),
+                to.getId(), to.getCardNumber(), new BigDecimal(amount), TransferStatus.COMPLETED);
+    }
+
+    @Test
+    void history_firstPage_returnsCursorOfLastTransfer() {
+        Transfer newer = transfer(FROM.plusSeconds(20));
+        Transfer older = transfer(FROM.plusSeconds(10));
+        when(transferRepository.findByFromCard_Owner_IdOrderByCreatedAtDescIdDesc(eq(userId), any(ScrollPosition.class), eq(Limit.of(2))))
+                .thenReturn(Window.from(List.of(newer, older), ScrollPosition::offset, true));
+
+        SliceResponse<TransferResponse> resp = service.history(userId, null, 2);
+
+        assertThat(resp.getContent()).extracting(TransferResponse::getId).containsExactly(newer.getId(), older.getId());
+        assertThat(resp.getContent().get(0).getFromMaskedNumber()).isEqualTo("**** **** **** 3333");
+        assertThat(resp.isHasNext()).isTrue();
+        assertThat(CursorUtil.decodeTimeKey(resp.getNextCursor()))
+                .isEqualTo(new CursorUtil.TimeKey(older.getCreatedAt(), older.getId()));
+    }
+
+    @Test
+    void history_withCursor_continuesAfterKey() {
+        Transfer last = transfer(FROM.plusNanos(123_456_000));
+        when(transferRepository.findByFromCard_Owner_IdOrderByCreatedAtDescIdDesc(eq(userId), any(ScrollPosition.class), any(Limit.class)))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset, false));
+
+        SliceResponse<TransferResponse> resp = service.history(userId, CursorUtil.encode(last.getCreatedAt(), last.getId()), 20);
+
+        ArgumentCaptor<ScrollPosition> captor = ArgumentCaptor.forClass(ScrollPosition.class);
+        verify(transferRepository).findByFromCard_Owner_IdOrderByCreatedAtDescIdDesc(eq(userId), captor.capture(), eq(Limit.of(20)));
+        KeysetScrollPosition position = (KeysetScrollPosition) captor.getValue();
+        assertThat(position.getKeys()).containsEntry("createdAt", last.getCreatedAt()).containsEntry("id", last.getId());
+        assertThat(resp.isHasNext()).isFalse();
+        assertThat(resp.getNextCursor()).isNull();
+    }
+
+    @Test
+    void history_brokenCursor_throwsIllegalArgument() {
+        assertThatThrownBy(() -> service.history(userId, CursorUtil.encode(UUID.randomUUID()), 20))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void export_ndjson_writesOneMaskedObjectPerLineAndClosesStream() throws Exception {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(transferRepository.streamForExport(FROM, TO))
+                .thenReturn(Stream.of(row("10.00"), row("20.50")).onClose(() -> closed.set(true)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(FROM, TO, TransferHistoryService.ExportFormat.NDJSON, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"id\":")
+                .contains("\"fromMaskedNumber\":\"**** **** **** 3333\"")
+                .contains("\"createdAt\":\"2024-05-01T00:01:00Z\"")
+                .doesNotContain("4000 1111");
+        assertThat(lines[1]).contains("\"amount\":20.50");
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void export_csv_writesHeaderAndRows() throws Exception {
+        TransferExportRow row = row("10.00");
+        when(transferRepository.streamForExport(FROM, TO)).thenReturn(Stream.of(row));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.export(FROM, TO, TransferHistoryService.ExportFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,createdAt,fromCardId,fromMaskedNumber,toCardId,toMaskedNumber,amount,status\n"
+                        + row.getId() + ",2024-05-01T00:01:00Z," + from.getId() + ",**** **** **** 3333,"
+                        + to.getId() + ",**** **** **** 4444,10.00,COMPLETED\n");
+    }
+
+    @Test
+    void export_emptyPeriod_throwsIllegalArgument() {
+        assertThatThrownBy(() -> service.export(TO, FROM, TransferHistoryService.ExportFormat.CSV, new ByteArrayOutputStream()))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(transferRepository);
+    }
+}
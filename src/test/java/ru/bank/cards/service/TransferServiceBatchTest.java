@@ -0,0 +1,185 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.dto.TransferResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.LedgerEntry;
+import ru.bank.cards.entity.Transfer;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
+import ru.bank.cards.repository.TransferRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class TransferServiceBatchTest {
+
+    private CardRepository cardRepository;
+    private TransferRepository transferRepository;
+    private LedgerEntryRepository ledgerEntryRepository;
+    private CardBalanceCache balanceCache;
+    private TransferService service;
+    private User owner;
+    private final Map<UUID, Card> rows = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        transferRepository = mock(TransferRepository.class);
+        ledgerEntryRepository = mock(LedgerEntryRepository.class);
+        balanceCache = mock(CardBalanceCache.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(transferRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Transfer> batch = inv.getArgument(0);
+            batch.forEach(t -> t.setId(UUID.randomUUID()));
+            return batch;
+        });
+        when(cardRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().map(rows::get).filter(Objects::nonNull).toList();
+        });
+        when(cardRepository.findAllByIdForShare(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().map(rows::get).filter(Objects::nonNull).toList();
+        });
+        when(ledgerEntryRepository.currentBalances(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().filter(rows::containsKey).map(id -> balance(id, rows.get(id).getBalance())).toList();
+        });
+        service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), balanceCache, transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.PESSIMISTIC, 3, 0);
+        owner = User.builder().id(UUID.randomUUID()).build();
+    }
+
+    private Card card(String balance) {
+        Card card = Card.builder()
+                .id(UUID.randomUUID())
+                .owner(owner)
+                .cardNumber("4000 1111 2222 " + (int) (Math.random() * 9000 + 1000))
+                .expiresAt(LocalDate.now().plusYears(1))
+                .status(CardStatus.ACTIVE)
+                .balance(new BigDecimal(balance))
+                .build();
+        rows.put(card.getId(), card);
+        return card;
+    }
+
+    private static LedgerEntryRepository.CardBalance balance(UUID id, BigDecimal value) {
+        return new LedgerEntryRepository.CardBalance() {
+            @Override
+            public UUID getCardId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return value;
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LedgerEntry> savedEntries() {
+        ArgumentCaptor<List<LedgerEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    void transferBatch_appliesInOrderAndAppendsDebitAndCreditPerTransfer() {
+        Card a = card("100.00");
+        Card b = card("0.00");
+        Card c = card("0.00");
+
+        List<TransferResponse> result = service.transferBatch(owner.getId(), List.of(
+                new TransferRequest(a.getId(), b.getId(), new BigDecimal("60")),
+                new TransferRequest(b.getId(), c.getId(), new BigDecimal("50")),
+                new TransferRequest(c.getId(), a.getId(), new BigDecimal("10"))));
+
+        assertThat(result).hasSize(3);
+        List<LedgerEntry> entries = savedEntries();
+        assertThat(entries).hasSize(6);
+        Map<UUID, BigDecimal> delta = entries.stream().collect(Collectors.groupingBy(
+                e -> e.getCard().getId(), Collectors.reducing(BigDecimal.ZERO, LedgerEntry::getAmount, BigDecimal::add)));
+        assertThat(delta.get(a.getId())).isEqualByComparingTo("-50.00");
+        assertThat(delta.get(b.getId())).isEqualByComparingTo("10.00");
+        assertThat(delta.get(c.getId())).isEqualByComparingTo("40.00");
+        assertThat(a.getBalance()).isEqualByComparingTo("100.00");
+        verify(cardRepository, times(1)).findAllByIdForUpdate(
+                Stream.of(a.getId(), b.getId(), c.getId()).sorted(TransferService.LOCK_ORDER).toList());
+        verify(cardRepository, never()).findAllByIdForShare(anyCollection());
+        verify(cardRepository, never()).findById(any());
+        verify(ledgerEntryRepository, times(1)).currentBalances(anyCollection());
+        verify(transferRepository, times(1)).saveAll(anyList());
+        verify(balanceCache).evictAfterCommit(Set.of(a.getId(), b.getId(), c.getId()));
+        verify(transferRepository, never()).save(any());
+    }
+
+    @Test
+    void transferBatch_locksCreditOnlyCardsForShareInIdOrder() {
+        Card a = card("100.00");
+        Card b = card("0.00");
+
+        service.transferBatch(owner.getId(), List.of(new TransferRequest(a.getId(), b.getId(), new BigDecimal("10"))));
+
+        InOrder order = inOrder(cardRepository);
+        if (TransferService.LOCK_ORDER.compare(a.getId(), b.getId()) < 0) {
+            order.verify(cardRepository).findAllByIdForUpdate(List.of(a.getId()));
+            order.verify(cardRepository).findAllByIdForShare(List.of(b.getId()));
+        } else {
+            order.verify(cardRepository).findAllByIdForShare(List.of(b.getId()));
+            order.verify(cardRepository).findAllByIdForUpdate(List.of(a.getId()));
+        }
+        verify(cardRepository, never()).findByIdForShare(any());
+        verify(ledgerEntryRepository).currentBalances(Set.of(a.getId()));
+    }
+
+    @Test
+    void transferBatch_whenItemFails_reportsIndexAndSavesNothing() {
+        Card a = card("100.00");
+        Card b = card("0.00");
+
+        assertThatThrownBy(() -> service.transferBatch(owner.getId(), List.of(
+                new TransferRequest(a.getId(), b.getId(), new BigDecimal("80")),
+                new TransferRequest(a.getId(), b.getId(), new BigDecimal("30")))))
+                .isInstanceOf(EntityException.class)
+                .hasMessageContaining("[1]")
+                .extracting("code").isEqualTo(ErrorCode.NOT_ENOUGH_FUNDS);
+        verify(transferRepository, never()).saveAll(anyList());
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void transferBatch_whenSameCard_failsBeforeTouchingRepository() {
+        UUID id = UUID.randomUUID();
+
+        assertThatThrownBy(() -> service.transferBatch(owner.getId(), List.of(
+                new TransferRequest(id, id, BigDecimal.ONE))))
+                .isInstanceOf(EntityException.class)
+                .hasMessageContaining("[0]");
+        verifyNoInteractions(cardRepository);
+    }
+}
@@ -0,0 +1,317 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.LedgerEntry;
+import ru.bank.cards.entity.Transfer;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
+import ru.bank.cards.repository.TransferRepository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Конкурентные переводы через «горячую» карту. Блокировки строк БД эмулируются
+ * ReentrantReadWriteLock на каждую карту: FOR UPDATE — запись, FOR SHARE — чтение, освобождение
+ * на commit/rollback. Проводки журнала становятся видны чтению балансов только после коммита.
+ * Порядок блокировок строк и отсутствие взаимных блокировок в PostgreSQL проверяет
+ * {@link TransferServicePostgresTest}.
+ */
+class TransferServiceConcurrencyTest {
+
+    private static final int TRANSFERS = 5_000;
+    private static final int THREADS = 32;
+    private static final int COLD_CARDS = 10;
+
+    private final Map<UUID, Card> rows = new ConcurrentHashMap<>();
+    private final Map<UUID, ReentrantReadWriteLock> rowLocks = new ConcurrentHashMap<>();
+    private final ThreadLocal<List<Lock>> held = ThreadLocal.withInitial(ArrayList::new);
+    private final Queue<LedgerEntry> committed = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<List<LedgerEntry>> pending = ThreadLocal.withInitial(ArrayList::new);
+
+    private CardRepository cardRepository;
+    private TransferRepository transferRepository;
+    private LedgerEntryRepository ledgerEntryRepository;
+    private PlatformTransactionManager transactionManager;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        transferRepository = mock(TransferRepository.class);
+        ledgerEntryRepository = mock(LedgerEntryRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        owner = User.builder().id(UUID.randomUUID()).fullName("Hot Owner").build();
+
+        when(transactionManager.getTransaction(any())).thenAnswer(inv -> new SimpleTransactionStatus());
+        doAnswer(inv -> commit()).when(transactionManager).commit(any());
+        doAnswer(inv -> rollback()).when(transactionManager).rollback(any());
+        when(transferRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Transfer> batch = inv.getArgument(0);
+            batch.forEach(t -> t.setId(UUID.randomUUID()));
+            return batch;
+        });
+        when(ledgerEntryRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<LedgerEntry> entries = inv.getArgument(0);
+            pending.get().addAll(entries);
+            return entries;
+        });
+        when(ledgerEntryRepository.currentBalances(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().filter(rows::containsKey).map(id -> cardBalance(id, balance(id))).toList();
+        });
+        when(cardRepository.findAllByIdForUpdate(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().sorted(TransferService.LOCK_ORDER).map(id -> lockRow(id, true)).flatMap(Optional::stream).toList();
+        });
+        when(cardRepository.findAllByIdForShare(anyCollection())).thenAnswer(inv -> {
+            Collection<UUID> ids = inv.getArgument(0);
+            return ids.stream().sorted(TransferService.LOCK_ORDER).map(id -> lockRow(id, false)).flatMap(Optional::stream).toList();
+        });
+        when(cardRepository.findByIdForShare(any())).thenAnswer(inv -> lockRow(inv.getArgument(0), false));
+    }
+
+    @Test
+    void pessimistic_parallelTransfersThroughHotCard_keepTotalBalance() throws Exception {
+        TransferService service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.PESSIMISTIC, 3, 0);
+
+        Card hot = addCard(new BigDecimal("100000.00"));
+        List<Card> cold = new ArrayList<>();
+        for (int i = 0; i < COLD_CARDS; i++) cold.add(addCard(new BigDecimal("50.00")));
+        BigDecimal totalBefore = total();
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            Card other = cold.get(i % COLD_CARDS);
+            boolean fromHot = i % 2 == 0;
+            BigDecimal amount = BigDecimal.valueOf(1 + (i % 40));
+            TransferRequest req = fromHot
+                    ? new TransferRequest(hot.getId(), other.getId(), amount)
+                    : new TransferRequest(other.getId(), hot.getId(), amount);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    service.transfer(owner.getId(), req);
+                    completed.incrementAndGet();
+                } catch (EntityException ex) {
+                    assertThat(ex.getCode()).isEqualTo(ErrorCode.NOT_ENOUGH_FUNDS);
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertThat(completed.get() + rejected.get()).isEqualTo(TRANSFERS);
+        assertThat(total()).isEqualByComparingTo(totalBefore);
+        assertThat(rows.keySet()).allSatisfy(id -> assertThat(balance(id).signum()).isGreaterThanOrEqualTo(0));
+        assertThat(committed).hasSize(2 * completed.get());
+        assertThat(rowLocks.values()).noneMatch(l -> l.isWriteLocked() || l.getReadLockCount() > 0);
+        verify(transferRepository, times(completed.get())).saveAll(anyList());
+    }
+
+    @Test
+    void pessimistic_transfersIntoSameRecipient_doNotWaitForEachOther() throws Exception {
+        TransferService service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.PESSIMISTIC, 3, 0);
+        Card first = addCard(new BigDecimal("100.00"));
+        Card second = addCard(new BigDecimal("100.00"));
+        Card hot = addCard(BigDecimal.ZERO);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        doAnswer(inv -> {
+            if (Thread.currentThread() != caller) {
+                locked.countDown();
+                release.await();
+            }
+            return commit();
+        }).when(transactionManager).commit(any());
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> held = pool.submit(() ->
+                    service.transfer(owner.getId(), new TransferRequest(first.getId(), hot.getId(), BigDecimal.TEN)));
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(rowLocks.get(hot.getId()).getReadLockCount()).isEqualTo(1);
+
+            // Первый перевод держит блокировки до коммита, второй зачисляет на ту же карту, не дожидаясь его.
+            service.transfer(owner.getId(), new TransferRequest(second.getId(), hot.getId(), BigDecimal.ONE));
+
+            assertThat(committed).hasSize(2);
+            release.countDown();
+            held.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertThat(balance(hot.getId())).isEqualByComparingTo("11.00");
+        assertThat(rowLocks.get(hot.getId()).isWriteLocked()).isFalse();
+    }
+
+    @Test
+    void optimistic_retriesConflictAndSucceeds() {
+        Card from = addCard(new BigDecimal("100.00"));
+        Card to = addCard(BigDecimal.ZERO);
+        stubOptimisticReads();
+        doAnswer(inv -> {
+            rollback();
+            throw new ObjectOptimisticLockingFailureException(Card.class, from.getId());
+        }).doAnswer(inv -> commit()).when(transactionManager).commit(any());
+        TransferService service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.OPTIMISTIC, 3, 1);
+
+        service.transfer(owner.getId(), new TransferRequest(from.getId(), to.getId(), new BigDecimal("10.00")));
+
+        verify(cardRepository, times(2)).findByIdWithVersionIncrement(from.getId());
+        verify(transactionManager, times(2)).commit(any());
+        assertThat(committed).hasSize(2);
+        assertThat(balance(from.getId())).isEqualByComparingTo("90.00");
+        assertThat(balance(to.getId())).isEqualByComparingTo("10.00");
+    }
+
+    @Test
+    void optimistic_locksRecipientForShareAndRetriesDeadlockLoser() {
+        Card from = addCard(new BigDecimal("100.00"));
+        Card to = addCard(BigDecimal.ZERO);
+        stubOptimisticReads();
+        doAnswer(inv -> {
+            rollback();
+            throw new CannotAcquireLockException("deadlock detected");
+        }).doAnswer(inv -> commit()).when(transactionManager).commit(any());
+        TransferService service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.OPTIMISTIC, 3, 1);
+
+        service.transfer(owner.getId(), new TransferRequest(from.getId(), to.getId(), new BigDecimal("10.00")));
+
+        verify(cardRepository, times(2)).findByIdForShare(to.getId());
+        verify(cardRepository, never()).findById(any());
+        assertThat(balance(to.getId())).isEqualByComparingTo("10.00");
+        assertThat(rowLocks.get(to.getId()).getReadLockCount()).isZero();
+    }
+
+    @Test
+    void optimistic_givesUpAfterMaxAttempts() {
+        Card from = addCard(new BigDecimal("100.00"));
+        Card to = addCard(BigDecimal.ZERO);
+        stubOptimisticReads();
+        doAnswer(inv -> {
+            rollback();
+            throw new ObjectOptimisticLockingFailureException(Card.class, from.getId());
+        }).when(transactionManager).commit(any());
+        TransferService service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(),
+                TransferService.LockingMode.OPTIMISTIC, 3, 1);
+
+        assertThatThrownBy(() -> service.transfer(owner.getId(),
+                new TransferRequest(from.getId(), to.getId(), new BigDecimal("10.00"))))
+                .isInstanceOf(EntityException.class)
+                .extracting("code").isEqualTo(ErrorCode.CONCURRENT_UPDATE);
+        verify(transactionManager, times(3)).commit(any());
+        assertThat(committed).isEmpty();
+    }
+
+    private Card addCard(BigDecimal balance) {
+        Card c = Card.builder()
+                .id(UUID.randomUUID())
+                .owner(owner)
+                .cardNumber("4000 0000 0000 " + (1000 + rows.size()))
+                .expiresAt(LocalDate.now().plusYears(1))
+                .status(CardStatus.ACTIVE)
+                .balance(balance)
+                .build();
+        rows.put(c.getId(), c);
+        rowLocks.put(c.getId(), new ReentrantReadWriteLock());
+        return c;
+    }
+
+    private void stubOptimisticReads() {
+        when(cardRepository.findByIdWithVersionIncrement(any())).thenAnswer(inv -> Optional.ofNullable(rows.get((UUID) inv.getArgument(0))));
+    }
+
+    private Optional<Card> lockRow(UUID id, boolean exclusive) {
+        ReentrantReadWriteLock rw = rowLocks.get(id);
+        if (rw == null) return Optional.empty();
+        Lock lock = exclusive ? rw.writeLock() : rw.readLock();
+        lock.lock();
+        held.get().add(lock);
+        return Optional.of(rows.get(id));
+    }
+
+    private Object commit() {
+        committed.addAll(pending.get());
+        return rollback();
+    }
+
+    private Object rollback() {
+        pending.get().clear();
+        List<Lock> locks = held.get();
+        locks.forEach(Lock::unlock);
+        locks.clear();
+        return null;
+    }
+
+    /**
+     * Снимок карты плюс закоммиченные проводки — как {@code LedgerEntryRepository.currentBalances}.
+     */
+    private BigDecimal balance(UUID cardId) {
+        BigDecimal balance = rows.get(cardId).getBalance();
+        for (LedgerEntry e : committed) {
+            if (e.getCard().getId().equals(cardId)) balance = balance.add(e.getAmount());
+        }
+        return balance;
+    }
+
+    private static LedgerEntryRepository.CardBalance cardBalance(UUID id, BigDecimal value) {
+        return new LedgerEntryRepository.CardBalance() {
+            @Override
+            public UUID getCardId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return value;
+            }
+        };
+    }
+
+    private BigDecimal total() {
+        return rows.keySet().stream().map(this::balance).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
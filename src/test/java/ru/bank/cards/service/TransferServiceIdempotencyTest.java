@@ -0,0 +1,190 @@
+package ru.bank.cards.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.dto.TransferResponse;
+import ru.bank.cards.entity.Card;
+import ru.bank.cards.entity.CardStatus;
+import ru.bank.cards.entity.Transfer;
+import ru.bank.cards.entity.TransferIdempotency;
+import ru.bank.cards.entity.TransferStatus;
+import ru.bank.cards.entity.User;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
+import ru.bank.cards.repository.TransferIdempotencyRepository;
+import ru.bank.cards.repository.TransferRepository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferServiceIdempotencyTest {
+
+    private static final String KEY = "3f0c1c9e-retry";
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private CardRepository cardRepository;
+    private TransferRepository transferRepository;
+    private LedgerEntryRepository ledgerEntryRepository;
+    private TransferIdempotencyRepository idempotencyRepository;
+    private PlatformTransactionManager transactionManager;
+    private TransferService service;
+    private final UUID userId = UUID.randomUUID();
+    private final TransferRequest request = new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("10"));
+
+    @BeforeEach
+    void setUp() {
+        cardRepository = mock(CardRepository.class);
+        transferRepository = mock(TransferRepository.class);
+        ledgerEntryRepository = mock(LedgerEntryRepository.class);
+        idempotencyRepository = mock(TransferIdempotencyRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        TransferIdempotencyStore store = new TransferIdempotencyStore(idempotencyRepository, mapper, 100, 60);
+        service = new TransferService(cardRepository, transferRepository, ledgerEntryRepository, store,
+                mock(CardBalanceCache.class), transactionManager, new SimpleMeterRegistry(), TransferService.LockingMode.PESSIMISTIC, 3, 0);
+    }
+
+    private TransferIdempotency stored(TransferRequest req, TransferResponse response) throws Exception {
+        String hash = TransferIdempotencyStore.key(userId, KEY, req, new BigDecimal("10.00")).requestHash();
+        return TransferIdempotency.builder()
+                .userId(userId)
+                .idempotencyKey(KEY)
+                .requestHash(hash)
+                .response(mapper.writeValueAsString(response))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    private static TransferResponse response() {
+        return TransferResponse.builder()
+                .id(UUID.randomUUID())
+                .fromMaskedNumber("**** **** **** 3333")
+                .toMaskedNumber("**** **** **** 4444")
+                .amount(new BigDecimal("10.00"))
+                .createdAt(Instant.parse("2024-05-01T10:00:00Z"))
+                .status(TransferStatus.COMPLETED)
+                .build();
+    }
+
+    @Test
+    void replay_returnsStoredResponseWithoutTouchingCards() throws Exception {
+        TransferResponse original = response();
+        when(idempotencyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.of(stored(request, original)));
+
+        TransferResponse first = service.transfer(userId, request, KEY);
+        TransferResponse second = service.transfer(userId, request, KEY);
+
+        assertThat(first.getId()).isEqualTo(original.getId());
+        assertThat(second.getCreatedAt()).isEqualTo(original.getCreatedAt());
+        verify(idempotencyRepository, times(1)).findByUserIdAndIdempotencyKey(userId, KEY);
+        verifyNoInteractions(cardRepository, transferRepository, transactionManager);
+    }
+
+    @Test
+    void sameKeyWithOtherParameters_isRejected() throws Exception {
+        when(idempotencyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.of(stored(request, response())));
+        TransferRequest other = new TransferRequest(request.getFromCardId(), request.getToCardId(), new BigDecimal("11.00"));
+
+        assertThatThrownBy(() -> service.transfer(userId, other, KEY))
+                .isInstanceOf(EntityException.class)
+                .extracting("code").isEqualTo(ErrorCode.IDEMPOTENCY_KEY_REUSED);
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    void lostClaim_returnsResponseOfConcurrentRequest() throws Exception {
+        TransferResponse original = response();
+        when(idempotencyRepository.findByUserIdAndIdempotencyKey(userId, KEY))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(stored(request, original)));
+        when(idempotencyRepository.claim(any(), eq(userId), eq(KEY), any())).thenReturn(0);
+
+        TransferResponse result = service.transfer(userId, request, KEY);
+
+        assertThat(result.getId()).isEqualTo(original.getId());
+        verifyNoInteractions(cardRepository, ledgerEntryRepository);
+        verify(idempotencyRepository, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    void firstRequest_transfersAndStoresResponse_thenRetryHitsCache() throws Exception {
+        User owner = User.builder().id(userId).build();
+        Card from = card(owner, request.getFromCardId(), "4000 1111 2222 3333");
+        Card to = card(owner, request.getToCardId(), "4000 1111 2222 4444");
+        when(idempotencyRepository.findByUserIdAndIdempotencyKey(userId, KEY)).thenReturn(Optional.empty());
+        when(idempotencyRepository.claim(any(), eq(userId), eq(KEY), any())).thenReturn(1);
+        when(cardRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of(from));
+        when(cardRepository.findAllByIdForShare(anyCollection())).thenReturn(List.of(to));
+        when(ledgerEntryRepository.currentBalances(anyCollection())).thenReturn(List.of(balance(from.getId())));
+        when(transferRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<Transfer> batch = inv.getArgument(0);
+            batch.forEach(t -> t.setId(UUID.randomUUID()));
+            return batch;
+        });
+
+        TransferResponse first = service.transfer(userId, request, KEY);
+        TransferResponse retry = service.transfer(userId, request, KEY);
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyRepository).complete(eq(userId), eq(KEY), json.capture());
+        assertThat(mapper.readValue(json.getValue(), TransferResponse.class).getId()).isEqualTo(first.getId());
+        assertThat(retry.getId()).isEqualTo(first.getId());
+        verify(transferRepository, times(1)).saveAll(anyList());
+        verify(idempotencyRepository, times(1)).findByUserIdAndIdempotencyKey(userId, KEY);
+    }
+
+    @Test
+    void blankKey_isBadRequest() {
+        assertThatThrownBy(() -> service.transfer(userId, request, " "))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(idempotencyRepository, cardRepository);
+    }
+
+    private static Card card(User owner, UUID id, String number) {
+        return Card.builder()
+                .id(id)
+                .owner(owner)
+                .cardNumber(number)
+                .expiresAt(LocalDate.now().plusYears(1))
+                .status(CardStatus.ACTIVE)
+                .balance(new BigDecimal("100.00"))
+                .build();
+    }
+
+    private static LedgerEntryRepository.CardBalance balance(UUID id) {
+        return new LedgerEntryRepository.CardBalance() {
+            @Override
+            public UUID getCardId() {
+                return id;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return new BigDecimal("100.00");
+            }
+        };
+    }
+}
@@ -0,0 +1,178 @@
+package ru.bank.cards.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.bank.cards.AbstractPostgresTest;
+import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
+import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
+import ru.bank.cards.repository.TransferRepository;
+import ru.bank.cards.util.UuidV7;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Переводы на настоящем PostgreSQL: блокировки строк берутся в одном порядке, поэтому встречные
+ * переводы не дают взаимных блокировок, а сумма балансов не меняется; зачисления на одну карту
+ * не ждут друг друга. В оптимистичном режиме конфликты повторяются и при исчерпании попыток
+ * дают CONCURRENT_UPDATE.
+ * <p>
+ * Переводы коммитятся по-настоящему, поэтому тест работает вне транзакции теста и заводит свои карты.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TransferServicePostgresTest extends AbstractPostgresTest {
+
+    private static final UUID OWNER = UUID.fromString("b1f7565d-cc5c-4cc4-b5b2-0a8b707b5a00");
+    private static final int CARDS = 4;
+    private static final int TRANSFERS = 400;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private CardRepository cardRepository;
+    @Autowired
+    private TransferRepository transferRepository;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @ParameterizedTest
+    @EnumSource(TransferService.LockingMode.class)
+    void oppositeDirectionTransfers_doNotDeadlockAndKeepTotalBalance(TransferService.LockingMode mode) throws Exception {
+        TransferService service = service(mode);
+        List<UUID> cards = new ArrayList<>();
+        for (int i = 0; i < CARDS; i++) cards.add(card("500.00"));
+        BigDecimal totalBefore = total(cards);
+
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < TRANSFERS; i++) {
+            // Соседние переводы идут по одной паре карт в разные стороны, часть — пакетом из двух встречных.
+            int x = (i / 2) % CARDS;
+            UUID a = cards.get(x);
+            UUID b = cards.get((x + 1 + (i / (2 * CARDS)) % (CARDS - 1)) % CARDS);
+            TransferRequest req = i % 2 == 0
+                    ? new TransferRequest(a, b, BigDecimal.valueOf(1 + i % 7))
+                    : new TransferRequest(b, a, BigDecimal.valueOf(1 + i % 7));
+            boolean batch = mode == TransferService.LockingMode.PESSIMISTIC && i % 5 == 0;
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    if (batch) {
+                        service.transferBatch(OWNER, List.of(req,
+                                new TransferRequest(req.getToCardId(), req.getFromCardId(), BigDecimal.ONE)));
+                    } else {
+                        service.transfer(OWNER, req);
+                    }
+                    completed.incrementAndGet();
+                } catch (EntityException ex) {
+                    assertThat(ex.getCode()).isIn(mode == TransferService.LockingMode.PESSIMISTIC
+                            ? List.of(ErrorCode.NOT_ENOUGH_FUNDS)
+                            : List.of(ErrorCode.NOT_ENOUGH_FUNDS, ErrorCode.CONCURRENT_UPDATE));
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertThat(completed.get() + rejected.get()).isEqualTo(TRANSFERS);
+        assertThat(completed.get()).isPositive();
+        assertThat(total(cards)).isEqualByComparingTo(totalBefore);
+        for (UUID card : cards) {
+            assertThat(balance(card).signum()).isGreaterThanOrEqualTo(0);
+        }
+    }
+
+    @Test
+    void transfersIntoSameRecipient_doNotBlockEachOther() throws Exception {
+        TransferService service = service(TransferService.LockingMode.PESSIMISTIC);
+        UUID first = card("100.00");
+        UUID second = card("100.00");
+        UUID hot = card("0.00");
+        CountDownLatch transferred = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // Первый перевод выполнен, но его транзакция не закоммичена и держит блокировки карт.
+            Future<?> held = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+                service.transfer(OWNER, new TransferRequest(first, hot, BigDecimal.TEN));
+                transferred.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertThat(transferred.await(10, TimeUnit.SECONDS)).isTrue();
+
+            pool.submit(() -> service.transfer(OWNER, new TransferRequest(second, hot, BigDecimal.ONE)))
+                    .get(10, TimeUnit.SECONDS);
+            assertThat(balance(hot)).isEqualByComparingTo("1.00");
+
+            release.countDown();
+            held.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+        assertThat(balance(hot)).isEqualByComparingTo("11.00");
+    }
+
+    private TransferService service(TransferService.LockingMode mode) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        return new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), new CardBalanceCache(meterRegistry, 1000, 30),
+                transactionManager, meterRegistry, mode, 5, 5);
+    }
+
+    private UUID card(String balance) {
+        UUID id = UuidV7.next();
+        String number = "8" + String.format("%018d", ThreadLocalRandom.current().nextLong(1_000_000_000_000_000_000L));
+        jdbc.update("""
+                INSERT INTO card (id, number, pan_last4, owner_id, expires_at, status, balance)
+                VALUES (?, ?, ?, ?, current_date + 365, 'ACTIVE', ?)
+                """, id, number, number.substring(number.length() - 4), OWNER, new BigDecimal(balance));
+        return id;
+    }
+
+    private BigDecimal balance(UUID card) {
+        return ledgerEntryRepository.currentBalances(List.of(card)).get(0).getBalance();
+    }
+
+    private BigDecimal total(List<UUID> cards) {
+        return ledgerEntryRepository.currentBalances(cards).stream()
+                .map(LedgerEntryRepository.CardBalance::getBalance)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
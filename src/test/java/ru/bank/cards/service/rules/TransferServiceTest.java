@@ -1,31 +1,53 @@
 package ru.bank.cards.service.rules;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
 import ru.bank.cards.dto.TransferRequest;
+import ru.bank.cards.exception.EntityException;
+import ru.bank.cards.exception.ErrorCode;
 import ru.bank.cards.repository.CardRepository;
+import ru.bank.cards.repository.LedgerEntryRepository;
+import ru.bank.cards.repository.TransferRepository;
+import ru.bank.cards.service.CardBalanceCache;
+import ru.bank.cards.service.TransferIdempotencyStore;
 import ru.bank.cards.service.TransferService;
 
 import java.math.BigDecimal;
-import java.util.Optional;
+import java.util.List;
 import java.util.UUID;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 class TransferServiceTest {
 
     @Mock
     private CardRepository cardRepository;
-    @InjectMocks
+    @Mock
+    private TransferRepository transferRepository;
+    @Mock
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     private TransferService transferService;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        transferService = new TransferService(cardRepository, transferRepository, ledgerEntryRepository,
+                mock(TransferIdempotencyStore.class), mock(CardBalanceCache.class), transactionManager, meterRegistry,
+                TransferService.LockingMode.PESSIMISTIC, 3, 0);
     }
 
     @Test
@@ -33,10 +55,23 @@ class TransferServiceTest {
         UUID userId = UUID.randomUUID();
         UUID fromId = UUID.randomUUID();
 
-        when(cardRepository.findById(fromId)).thenReturn(Optional.empty());
+        when(cardRepository.findAllByIdForUpdate(anyCollection())).thenReturn(List.of());
         TransferRequest req = new TransferRequest(fromId, UUID.randomUUID(), new BigDecimal("10.00"));
 
         assertThatThrownBy(() -> transferService.transfer(userId, req))
                 .isInstanceOf(RuntimeException.class);
     }
+
+    @Test
+    void transfer_failure_isTimedWithErrorCode() {
+        UUID cardId = UUID.randomUUID();
+        TransferRequest req = new TransferRequest(cardId, cardId, new BigDecimal("10.00"));
+
+        assertThatThrownBy(() -> transferService.transfer(UUID.randomUUID(), req))
+                .isInstanceOf(EntityException.class);
+
+        assertThat(meterRegistry.get("transfer")
+                .tags("operation", "single", "outcome", "failure", "code", ErrorCode.SAME_CARD.name())
+                .timer().count()).isEqualTo(1);
+    }
 }
@@ -0,0 +1,86 @@
+package ru.bank.cards.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MaskingUtilTest {
+
+    private static final char[] ALPHABET = {
+            '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', '-', 'x',
+            ' ', '\t', '\n', '\u000B', '\f', '\r', '\u001C', '\u00A0', '\u2028', '\u3000', '\uD83D', '\uDCB3'
+    };
+
+    /**
+     * Прежняя реализация на регулярном выражении — эталон для проверки эквивалентности.
+     */
+    private static String legacyMaskPan(String pan) {
+        if (pan == null || pan.isBlank()) return "**** **** **** ****";
+        String digits = pan.replaceAll("\\s+", "");
+        String last4 = digits.length() >= 4 ? digits.substring(digits.length() - 4) : digits;
+        return "**** **** **** " + last4;
+    }
+
+    @Test
+    void maskPan_keepsLast4() {
+        assertThat(MaskingUtil.maskPan("4000 1111 2222 3333")).isEqualTo("**** **** **** 3333");
+        assertThat(MaskingUtil.maskPan("4000111122223333")).isEqualTo("**** **** **** 3333");
+        assertThat(MaskingUtil.maskPan("1 2")).isEqualTo("**** **** **** 12");
+    }
+
+    @Test
+    void maskPan_nullOrBlank() {
+        assertThat(MaskingUtil.maskPan(null)).isEqualTo("**** **** **** ****");
+        assertThat(MaskingUtil.maskPan("")).isEqualTo("**** **** **** ****");
+        assertThat(MaskingUtil.maskPan(" \t ")).isEqualTo("**** **** **** ****");
+    }
+
+    @Test
+    void maskPan_matchesLegacyRegexOnRandomInput() {
+        Random random = new Random(20_240_101L);
+        for (int i = 0; i < 200_000; i++) {
+            char[] chars = new char[random.nextInt(25)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            String pan = new String(chars);
+            assertThat(MaskingUtil.maskPan(pan)).as("pan=%s", Arrays.toString(chars)).isEqualTo(legacyMaskPan(pan));
+        }
+    }
+
+    @Test
+    void maskPan_writesIntoBufferAtOffset() {
+        char[] buf = new char[3 + MaskingUtil.MASKED_LENGTH];
+        int n = MaskingUtil.maskPan(new StringBuilder("4000 1111 2222 3333"), buf, 3);
+
+        assertThat(new String(buf, 3, n)).isEqualTo("**** **** **** 3333");
+    }
+
+    @Test
+    void maskedPanSerializer_writesMaskedNumber() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(new Row("4000 1111 2222 3333"));
+
+        assertThat(json).isEqualTo("{\"pan\":\"**** **** **** 3333\"}");
+    }
+
+    @Test
+    void last4_ignoresSpaces() {
+        assertThat(MaskingUtil.last4("4000 1111 2222 3333")).isEqualTo("3333");
+        assertThat(MaskingUtil.last4("4000111122 22 33 33")).isEqualTo("3333");
+    }
+
+    @Test
+    void last4_shortOrEmptyInput() {
+        assertThat(MaskingUtil.last4("1 2")).isEqualTo("12");
+        assertThat(MaskingUtil.last4("   ")).isEmpty();
+        assertThat(MaskingUtil.last4(null)).isEmpty();
+    }
+
+    record Row(@JsonSerialize(using = MaskedPanSerializer.class) String pan) {
+    }
+}
@@ -0,0 +1,41 @@
+package ru.bank.cards.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidV7Test {
+
+    @Test
+    void next_hasVersion7AndRfcVariant() {
+        UUID id = UuidV7.next();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+    }
+
+    @Test
+    void next_embedsCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = UuidV7.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(UuidV7.timestampMillis(id)).isBetween(before, after + 1);
+    }
+
+    @Test
+    void next_isStrictlyIncreasingAndUnique() {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) ids.add(UuidV7.next());
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(ids.get(i)).isGreaterThan(ids.get(i - 1));
+        }
+        assertThat(new HashSet<>(ids)).hasSize(ids.size());
+    }
+}